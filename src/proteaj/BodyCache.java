@@ -0,0 +1,234 @@
+package proteaj;
+
+import proteaj.env.type.RootTypeResolver;
+import proteaj.error.*;
+import proteaj.ir.*;
+import proteaj.pparser.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import javassist.*;
+import javassist.bytecode.*;
+
+import static proteaj.util.Digests.sha1;
+
+/* a cache of the Java code generated from the method and constructor bodies, kept in a directory across compilations.
+ * an entry is keyed by the hash of what the parse of a body depends on :
+ * the body, the signature of the member, the header of the file and the operators available in it,
+ * and the type environment, that is, the signatures of the classes in the compilation and the files on the class path.
+ * a hit skips the packrat parsing of the body. the unhandled exceptions of the body are kept with the code and reported again. */
+public class BodyCache {
+  public BodyCache(File directory, IR ir) {
+    this.directory = directory;
+    this.environment = describeEnvironment(ir);
+    for (IRClass clazz : ir.getClasses()) headers.put(clazz.clazz, describeHeader(clazz.header));
+  }
+
+  /* the key of the body of the member parsed with the operators */
+  public String getKey(CtBehavior member, String[] paramNames, String source, AvailableOperators operators) {
+    ExceptionsAttribute exceptions = member.getMethodInfo2().getExceptionsAttribute();
+
+    StringBuilder buf = new StringBuilder(environment);
+    buf.append(headers.get(member.getDeclaringClass()));
+    buf.append(operatorsDescriptions.computeIfAbsent(operators, BodyCache::describeOperators));
+    buf.append(member.getDeclaringClass().getName()).append('.').append(member.getName()).append(member.getSignature());
+    buf.append(' ').append(member.getModifiers());
+    buf.append(' ').append(Arrays.toString(exceptions != null ? exceptions.getExceptions() : null));
+    buf.append(' ').append(Arrays.toString(paramNames)).append('\n');
+    buf.append(source);
+
+    return sha1(buf.toString());
+  }
+
+  /* the code cached with the key, or null.
+   * the unhandled exceptions kept with it are reported at the same lines relative to the body. */
+  public String find(String key, String filePath, int line) {
+    Path path = getPath(key);
+    if (! Files.isRegularFile(path)) return null;
+
+    List<String> exceptions = new ArrayList<>();
+    List<Integer> lines = new ArrayList<>();
+    String code;
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != FORMAT) return null;
+
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      code = new String(bytes, StandardCharsets.UTF_8);
+
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        exceptions.add(in.readUTF());
+        lines.add(line + in.readInt());
+      }
+    } catch (IOException e) {
+      return null;
+    }
+
+    for (int i = 0; i < exceptions.size(); i++) BodyParser.warnUnhandledException(exceptions.get(i), filePath, lines.get(i));
+    return code;
+  }
+
+  /* keeps the code with the unhandled exceptions reported for the body.
+   * the entry is written to a temporary file and renamed, so the other compilations never read a part of it. */
+  public void store(String key, String code, Environment env, int line) {
+    Path path = getPath(key);
+
+    try {
+      Files.createDirectories(path.getParent());
+      Path temp = Files.createTempFile(path.getParent(), "body", ".tmp");
+
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(FORMAT);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+
+        List<String> exceptions = new ArrayList<>();
+        List<Integer> lines = new ArrayList<>();
+        env.getExceptions().forEach((exception, ls) -> ls.forEach(l -> {
+          exceptions.add(exception.getName());
+          lines.add(l - line);
+        }));
+
+        out.writeInt(exceptions.size());
+        for (int i = 0; i < exceptions.size(); i++) {
+          out.writeUTF(exceptions.get(i));
+          out.writeInt(lines.get(i));
+        }
+      }
+
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      Warning.print("can't write the body cache : " + e.getMessage());
+    }
+  }
+
+  private Path getPath(String key) {
+    return directory.toPath().resolve(key.substring(0, 2)).resolve(key.substring(2));
+  }
+
+  private static String describeHeader(IRHeader header) {
+    StringBuilder buf = new StringBuilder();
+    buf.append("package ").append(header.packageName).append('\n');
+    buf.append("import ").append(header.importPackages).append(' ').append(header.importClasses).append('\n');
+    buf.append("using ").append(header.usingSyntax).append(' ').append(new TreeSet<>(header.unusingSyntax)).append('\n');
+    return buf.toString();
+  }
+
+  /* the errors on loading the operators are reported when the environment of the body is made, so they are not reported here */
+  private static String describeOperators(AvailableOperators operators) {
+    return DeferredDiagnostics.run(operators::describe).getResult();
+  }
+
+  /* the signatures of the classes in the compilation, and the files on the class path except the classes compiled now.
+   * the classes of the JDK are identified by its version,
+   * and the jar files and the class files in the directories by their sizes and the last modified times, so they are not read.
+   * the classes of the compiler itself are identified by its version. */
+  private static String describeEnvironment(IR ir) {
+    StringBuilder buf = new StringBuilder();
+    buf.append(Compiler.version).append(' ').append(System.getProperty("java.version")).append(' ').append(System.getProperty("java.home")).append('\n');
+
+    Set<String> compiled = new HashSet<>();
+    for (IRClass clazz : ir.getClasses()) {
+      compiled.add(clazz.clazz.getName());
+      describe(clazz.clazz.getClassFile2(), buf);
+    }
+
+    String compiler = getCodeSource();
+    for (String entry : getClassPath()) {
+      File file = new File(entry);
+      buf.append("classpath ").append(entry).append('\n');
+
+      if (entry.equals(compiler)) continue;
+      if (file.isFile()) buf.append(file.length()).append(' ').append(file.lastModified()).append('\n');
+      else if (file.isDirectory()) describeDirectory(file.toPath(), compiled, buf);
+    }
+
+    return buf.toString();
+  }
+
+  /* the class path of the compiler and the class path given by -cp */
+  private static Collection<String> getClassPath() {
+    Set<String> entries = new LinkedHashSet<>();
+
+    List<ClassLoader> loaders = new ArrayList<>();
+    for (ClassLoader loader = Thread.currentThread().getContextClassLoader(); loader != null; loader = loader.getParent()) loaders.add(loader);
+    Collections.reverse(loaders);
+
+    for (ClassLoader loader : loaders) if (loader instanceof URLClassLoader) {
+      for (URL url : ((URLClassLoader)loader).getURLs()) try {
+        if (url.getProtocol().equals("file")) entries.add(new File(url.toURI()).getAbsolutePath());
+      } catch (URISyntaxException e) {
+        entries.add(url.toString());
+      }
+    }
+
+    for (String entry : RootTypeResolver.getInstance().getClassPath()) entries.add(new File(entry).getAbsolutePath());
+    return entries;
+  }
+
+  private static String getCodeSource() {
+    try { return new File(BodyCache.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath(); }
+    catch (URISyntaxException | NullPointerException | SecurityException e) { return null; }
+  }
+
+  private static void describeDirectory(Path directory, Set<String> compiled, StringBuilder buf) {
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : files.filter(f -> f.toString().endsWith(".class")).sorted().collect(Collectors.toList())) {
+        String path = directory.relativize(file).toString();
+        String name = path.substring(0, path.length() - ".class".length()).replace(File.separatorChar, '.');
+        if (compiled.contains(name)) continue;
+
+        File classFile = file.toFile();
+        buf.append(name).append(' ').append(classFile.length()).append(' ').append(classFile.lastModified()).append('\n');
+      }
+    } catch (IOException e) {
+      buf.append("can't read ").append(directory).append('\n');
+    }
+  }
+
+  /* the signature of the class : its modifiers, super types and members */
+  private static void describe(ClassFile cf, StringBuilder buf) {
+    buf.append(cf.getAccessFlags()).append(' ').append(cf.getName()).append(' ').append(cf.getSuperclass());
+    buf.append(' ').append(Arrays.toString(cf.getInterfaces())).append(' ').append(getSignature(cf.getAttributes())).append('\n');
+
+    for (Object o : cf.getFields()) {
+      FieldInfo field = (FieldInfo)o;
+      buf.append(' ').append(field.getAccessFlags()).append(' ').append(field.getName()).append(' ').append(field.getDescriptor());
+      buf.append(' ').append(getSignature(field.getAttributes()));
+      if (field.getConstantValue() != 0) buf.append(" = ").append(cf.getConstPool().getLdcValue(field.getConstantValue()));
+      buf.append('\n');
+    }
+
+    for (Object o : cf.getMethods()) {
+      MethodInfo method = (MethodInfo)o;
+      ExceptionsAttribute exceptions = method.getExceptionsAttribute();
+      buf.append(' ').append(method.getAccessFlags()).append(' ').append(method.getName()).append(method.getDescriptor());
+      buf.append(' ').append(Arrays.toString(exceptions != null ? exceptions.getExceptions() : null));
+      buf.append(' ').append(getSignature(method.getAttributes())).append('\n');
+    }
+  }
+
+  private static String getSignature(List<?> attributes) {
+    for (Object attribute : attributes) {
+      if (attribute instanceof SignatureAttribute) return ((SignatureAttribute)attribute).getSignature();
+    }
+    return "";
+  }
+
+  private final File directory;
+  private final String environment;
+  /* the description of the header of each class, a part of the keys of the bodies of the class */
+  private final Map<CtClass, String> headers = new HashMap<>();
+  private final Map<AvailableOperators, String> operatorsDescriptions = new ConcurrentHashMap<>();
+
+  private static final int FORMAT = 1;
+}
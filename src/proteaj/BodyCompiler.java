@@ -1,112 +1,246 @@
 package proteaj;
 
+import proteaj.codegen.JavaCodeGenerator;
+import proteaj.env.CompilationContext;
 import proteaj.error.*;
 import proteaj.ir.*;
 import proteaj.pparser.Environment;
 import proteaj.pparser.PackratReader;
 import proteaj.tast.*;
+import proteaj.util.*;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 import java.util.stream.Collectors;
 
 import javassist.*;
 
 public class BodyCompiler {
   public BodyCompiler(IR ir) {
+    this(ir, false, 1);
+  }
+
+  /* jobs : the number of threads compiling bodies. bodies are compiled in sequence if it is 1. */
+  public BodyCompiler(IR ir, boolean boundedMemo, int jobs) {
+    this(ir, boundedMemo, jobs, null);
+  }
+
+  /* cache : the cache of the method and constructor bodies, or null */
+  public BodyCompiler(IR ir, boolean boundedMemo, int jobs, BodyCache cache) {
     this.ir = ir;
     this.parser = new BodyParser();
+    this.boundedMemo = boundedMemo;
+    this.jobs = jobs;
+    this.cache = cache;
   }
 
   public Program compile() {
+    return compile(null);
+  }
+
+  /* listener : called with each class as soon as all of its members are compiled.
+   * if jobs > 1, it is called on a worker thread while the other classes are still being compiled. */
+  public Program compile(Consumer<ClassDeclaration> listener) {
     Program program = new Program(ir);
 
-    program.addConstructors(compileConstructors());
-    program.addMethods(compileMethods());
-    program.addFields(compileFields());
-    program.addDefaultValues(compileDefaultArguments());
-    program.addClassInitializers(compileStaticInitializers());
+    if (jobs > 1) compileInParallel(program, listener);
+    else {
+      program.addConstructors(compileAll(program, ir.getConstructors(), c -> c.ctConstructor, c -> c.line, this::compileConstructor));
+      program.addMethods(compileAll(program, ir.getMethods(), m -> m.ctMethod, m -> m.line, this::compileMethod));
+      program.addFields(compileAll(program, ir.getFields(), f -> f.ctField, f -> f.line, this::compileField));
+      program.addDefaultValues(compileAll(program, ir.getDefaultArguments(), a -> a.ctMethod, a -> a.line, this::compileDefaultArgument));
+      program.addClassInitializers(compileAll(program, ir.getStaticInitializers(), i -> i.clInit, i -> i.line, this::compileStaticInitializer));
+
+      if (listener != null) program.getClasses().forEach(listener);
+    }
 
     return program;
   }
 
-  private List<MethodDeclaration> compileMethods() {
-    return ir.getMethods().stream().map(method -> {
-      Environment env = new Environment(ir, method.ctMethod);
-      PackratReader reader = new PackratReader(method.source, env.filePath, method.line);
+  private <S, T> List<T> compileAll(Program program, Collection<S> bodies, Function<S, CtMember> member, ToIntFunction<S> line, Function<S, T> compiler) {
+    return bodies.stream().map(body -> compile(program, body, member, line, compiler)).filter(a -> a != null).collect(Collectors.toList());
+  }
 
-      try { env.addParams(method.paramNames, method.getParamTypes()); } catch (NotFoundException e) {
-        ErrorList.addError(new NotFoundError(e, env.filePath, reader.getLine()));
-      }
+  /* compiles the body, measured for CompileStats */
+  private <S, T> T compile(Program program, S body, Function<S, CtMember> member, ToIntFunction<S> line, Function<S, T> compiler) {
+    CompileStats stats = CompileStats.getInstance();
+    if (! stats.isEnabled()) return compiler.apply(body);
 
-      try {
-        return new MethodDeclaration(method.ctMethod, parser.parseMethodBody(method.ctMethod, reader, env));
-      } catch (CompileErrors e) {
-        ErrorList.addErrors(e);
-        return null;
-      }
-    }).filter(a -> a != null).collect(Collectors.toList());
+    CtMember m = member.apply(body);
+    return stats.body(m, program.getClass(m.getDeclaringClass()).filePath, line.applyAsInt(body), () -> compiler.apply(body));
   }
 
-  private List<ConstructorDeclaration> compileConstructors() {
-    return ir.getConstructors().stream().map(constructor -> {
-      Environment env = new Environment(ir, constructor.ctConstructor);
-      PackratReader reader = new PackratReader(constructor.source, env.filePath, constructor.line);
+  private void compileInParallel(Program program, Consumer<ClassDeclaration> listener) {
+    ForkJoinPool pool = new ForkJoinPool(jobs);
+    ParallelMembers members = new ParallelMembers(program, pool);
+
+    try {
+      members.submit(ir.getConstructors(), c -> c.ctConstructor, c -> c.line, this::compileConstructor, program::addConstructor);
+      members.submit(ir.getMethods(), m -> m.ctMethod, m -> m.line, this::compileMethod, program::addMethod);
+      members.submit(ir.getFields(), f -> f.ctField, f -> f.line, this::compileField, program::addField);
+      members.submit(ir.getDefaultArguments(), a -> a.ctMethod, a -> a.line, this::compileDefaultArgument, program::addDefaultValue);
+      members.submit(ir.getStaticInitializers(), i -> i.clInit, i -> i.line, this::compileStaticInitializer, program::addClassInitializer);
+
+      List<CompletableFuture<Void>> classes = program.getClasses().stream()
+          .map(clazz -> members.whenCompiled(clazz, listener)).collect(Collectors.toList());
+
+      members.replay();
+      classes.forEach(CompletableFuture::join);
+    } finally {
+      pool.shutdown();
+    }
+  }
 
-      try { env.addParams(constructor.paramNames, constructor.getParamTypes()); } catch (NotFoundException e) {
-        ErrorList.addError(new NotFoundError(e, env.filePath, reader.getLine()));
+  /* the members compiled on the pool, in the compilation context of the caller.
+   * the members of a class are added to it in the same order as in sequence, as soon as all of them are compiled.
+   * the errors and warnings are kept aside and reported in the same order as in sequence. */
+  private class ParallelMembers {
+    ParallelMembers (Program program, ForkJoinPool pool) {
+      this.program = program;
+      this.pool = pool;
+      this.context = CompilationContext.current();
+    }
+
+    <S, T> void submit (Collection<S> bodies, Function<S, CtMember> member, ToIntFunction<S> line, Function<S, T> compiler, Consumer<T> adder) {
+      for (S body : bodies) {
+        CompletableFuture<DeferredDiagnostics<T>> task = DeferredDiagnostics.runAsync(context, () -> compile(program, body, member, line, compiler), pool);
+
+        Runnable add = () -> {
+          T result = task.join().getResult();
+          if (result != null) adder.accept(result);
+        };
+
+        tasks.add(task);
+        classes.computeIfAbsent(member.apply(body).getDeclaringClass(), c -> new ArrayList<>()).add(Pair.make(task, add));
       }
+    }
 
-      try {
-        return new ConstructorDeclaration(constructor.ctConstructor, parser.parseConstructorBody(constructor.ctConstructor, reader, env));
-      } catch (CompileErrors e) {
-        ErrorList.addErrors(e);
-        return null;
-      }
-    }).filter(a -> a != null).collect(Collectors.toList());
+    CompletableFuture<Void> whenCompiled (ClassDeclaration clazz, Consumer<ClassDeclaration> listener) {
+      List<Pair<CompletableFuture<?>, Runnable>> members = classes.getOrDefault(clazz.clazz, Collections.emptyList());
+      CompletableFuture<?>[] memberTasks = members.stream().map(pair -> pair._1).toArray(CompletableFuture<?>[]::new);
+
+      return CompletableFuture.allOf(memberTasks).thenRun(() -> {
+        for (Pair<CompletableFuture<?>, Runnable> pair : members) pair._2.run();
+        if (listener != null) listener.accept(clazz);
+      });
+    }
+
+    /* waits for all the members and reports their errors and warnings */
+    void replay () {
+      DeferredDiagnostics.replayAll(tasks);
+    }
+
+    private final Program program;
+    private final ForkJoinPool pool;
+    private final CompilationContext context;
+
+    private final List<CompletableFuture<? extends DeferredDiagnostics<?>>> tasks = new ArrayList<>();
+    private final Map<CtClass, List<Pair<CompletableFuture<?>, Runnable>>> classes = new HashMap<>();
   }
 
-  private List<FieldDeclaration> compileFields() {
-    return ir.getFields().stream().map(field -> {
-      Environment env = new Environment(ir, field.ctField);
-      PackratReader reader = new PackratReader(field.source, env.filePath, field.line);
+  private MethodDeclaration compileMethod(IRMethod method) {
+    Environment env = new Environment(ir, method.ctMethod);
+
+    String key = null;
+    if (cache != null) {
+      key = cache.getKey(method.ctMethod, method.paramNames, method.source, env.availableOperators);
+      String code = cache.find(key, env.filePath, method.line);
+      if (code != null) return new MethodDeclaration(method.ctMethod, null, code);
+    }
+
+    PackratReader reader = newReader(method.source, env.filePath, method.line);
+
+    try { env.addParams(method.paramNames, method.getParamTypes()); } catch (NotFoundException e) {
+      ErrorList.addError(new NotFoundError(e, env.filePath, reader.getLine()));
+    }
+
+    try {
+      MethodBody body = parser.parseMethodBody(method.ctMethod, reader, env);
+      if (cache == null) return new MethodDeclaration(method.ctMethod, body);
+
+      String code = new JavaCodeGenerator(method.ctMethod.getDeclaringClass()).codeGen(body);
+      cache.store(key, code, env, method.line);
+      return new MethodDeclaration(method.ctMethod, body, code);
+    } catch (CompileErrors e) {
+      ErrorList.addErrors(e);
+      return null;
+    }
+  }
 
-      try {
-        return new FieldDeclaration(field.ctField, parser.parseFieldBody(field.ctField, reader, env));
-      } catch (CompileErrors e) {
-        ErrorList.addErrors(e);
-        return null;
-      }
-    }).filter(a -> a != null).collect(Collectors.toList());
+  private ConstructorDeclaration compileConstructor(IRConstructor constructor) {
+    Environment env = new Environment(ir, constructor.ctConstructor);
+
+    String key = null;
+    if (cache != null) {
+      key = cache.getKey(constructor.ctConstructor, constructor.paramNames, constructor.source, env.availableOperators);
+      String code = cache.find(key, env.filePath, constructor.line);
+      if (code != null) return new ConstructorDeclaration(constructor.ctConstructor, null, code);
+    }
+
+    PackratReader reader = newReader(constructor.source, env.filePath, constructor.line);
+
+    try { env.addParams(constructor.paramNames, constructor.getParamTypes()); } catch (NotFoundException e) {
+      ErrorList.addError(new NotFoundError(e, env.filePath, reader.getLine()));
+    }
+
+    try {
+      ConstructorBody body = parser.parseConstructorBody(constructor.ctConstructor, reader, env);
+      if (cache == null) return new ConstructorDeclaration(constructor.ctConstructor, body);
+
+      String code = new JavaCodeGenerator(constructor.ctConstructor.getDeclaringClass()).codeGen(body);
+      cache.store(key, code, env, constructor.line);
+      return new ConstructorDeclaration(constructor.ctConstructor, body, code);
+    } catch (CompileErrors e) {
+      ErrorList.addErrors(e);
+      return null;
+    }
   }
 
-  private List<DefaultValueDefinition> compileDefaultArguments() {
-    return ir.getDefaultArguments().stream().map(arg -> {
-      Environment env = new Environment(ir, arg.ctMethod);
-      PackratReader reader = new PackratReader(arg.source, env.filePath, arg.line);
+  private FieldDeclaration compileField(IRField field) {
+    Environment env = new Environment(ir, field.ctField);
+    PackratReader reader = newReader(field.source, env.filePath, field.line);
 
-      try {
-        return new DefaultValueDefinition(arg.ctMethod, parser.parseDefaultArgument(arg.ctMethod, reader, env));
-      } catch (CompileErrors e) {
-        ErrorList.addErrors(e);
-        return null;
-      }
-    }).filter(a -> a != null).collect(Collectors.toList());
+    try {
+      return new FieldDeclaration(field.ctField, parser.parseFieldBody(field.ctField, reader, env));
+    } catch (CompileErrors e) {
+      ErrorList.addErrors(e);
+      return null;
+    }
   }
 
-  private List<ClassInitializerDefinition> compileStaticInitializers() {
-    return ir.getStaticInitializers().stream().map(sInit -> {
-      Environment env = new Environment(ir, sInit.clInit);
-      PackratReader reader = new PackratReader(sInit.source, env.filePath, sInit.line);
+  private DefaultValueDefinition compileDefaultArgument(IRDefaultArgument arg) {
+    Environment env = new Environment(ir, arg.ctMethod);
+    PackratReader reader = newReader(arg.source, env.filePath, arg.line);
 
-      try {
-        return new ClassInitializerDefinition(sInit.clInit, parser.parseStaticInitializer(reader, env));
-      } catch (CompileErrors e) {
-        ErrorList.addErrors(e);
-        return null;
-      }
-    }).filter(a -> a != null).collect(Collectors.toList());
+    try {
+      return new DefaultValueDefinition(arg.ctMethod, parser.parseDefaultArgument(arg.ctMethod, reader, env));
+    } catch (CompileErrors e) {
+      ErrorList.addErrors(e);
+      return null;
+    }
+  }
+
+  private ClassInitializerDefinition compileStaticInitializer(IRStaticInitializer sInit) {
+    Environment env = new Environment(ir, sInit.clInit);
+    PackratReader reader = newReader(sInit.source, env.filePath, sInit.line);
+
+    try {
+      return new ClassInitializerDefinition(sInit.clInit, parser.parseStaticInitializer(reader, env));
+    } catch (CompileErrors e) {
+      ErrorList.addErrors(e);
+      return null;
+    }
+  }
+
+  /* the reader counts the parsers if CompileStats counts them for the body being compiled */
+  private PackratReader newReader(String source, String filePath, int line) {
+    return new PackratReader(source, filePath, line, boundedMemo, CompileStats.getInstance().getParserCounters());
   }
 
   private IR ir;
   private BodyParser parser;
+  private final boolean boundedMemo;
+  private final int jobs;
+  private final BodyCache cache;
 }
@@ -63,13 +63,8 @@ public class BodyParser {
 
   private <T> T getResultOrThrowErrors (ParseResult<T> result, PackratReader reader, Environment env) throws CompileErrors {
     if (result.isFail()) {
-      Optional<Failure<?>> failure = reader.getAllFailures().max((f1, f2) -> {
-        if (f1.pos == f2.pos) return f1.priority - f2.priority;
-        else return f1.pos - f2.pos;
-      });
-
-      Failure<?> fail = failure.orElse((Failure<?>)result);
-      throw new CompileErrors(new ParseError(fail.msg, env.filePath, fail.line));
+      Failure<?> fail = reader.getBestFailure().orElse((Failure<?>)result);
+      throw new CompileErrors(new ParseError(fail.getMessage(), env.filePath, fail.line));
     }
     if (env.hasException()) {
       warnUnhandledExceptions(env);
@@ -81,8 +76,12 @@ public class BodyParser {
     for(Entry<CtClass, List<Integer>> entry : env.getExceptions().entrySet()) {
       CtClass exception = entry.getKey();
       for(int line : entry.getValue()) {
-        Warning.print("unhandled exception type " + exception.getName(), env.filePath, line);
+        warnUnhandledException(exception.getName(), env.filePath, line);
       }
     }
   }
+
+  static void warnUnhandledException(String exception, String filePath, int line) {
+    Warning.print("unhandled exception type " + exception, filePath, line);
+  }
 }
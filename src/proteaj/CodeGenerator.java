@@ -1,88 +1,243 @@
 package proteaj;
 
 import proteaj.codegen.lazy.TranslateLazy;
+import proteaj.env.CompilationContext;
 import proteaj.error.*;
 import proteaj.io.*;
 import proteaj.tast.*;
 import proteaj.codegen.JavaCodeGenerator;
+import proteaj.util.CompileStats;
 
 import java.io.*;
 import java.nio.charset.Charset;
 import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 
 import javassist.*;
 
 public class CodeGenerator {
   public CodeGenerator(String target, boolean translateToJava) {
+    this(target, translateToJava, 1);
+  }
+
+  /* jobs : the number of threads emitting classes. classes are emitted in sequence if it is 1. */
+  public CodeGenerator(String target, boolean translateToJava, int jobs) {
     this.target = target;
     this.translateToJava = translateToJava;
+    this.jobs = jobs;
   }
 
   public void codegen (Program program) {
-    TranslateLazy translator = new TranslateLazy(program);
-    program = translator.translate();
+    CompileStats stats = CompileStats.getInstance();
+
+    /* the bodies taken from BodyCache are not translated, and they are cached only if the translation is not required */
+    Program translated = TranslateLazy.isRequired(program) ? stats.phase("translate", () -> new TranslateLazy(program).translate()) : program;
 
-    codegenFields(program);
+    stats.phase("codegen", () -> {
+      codegenFields(translated);
+
+      if (jobs > 1) emitInParallel(translated.getClasses(), GeneratedClass::new);
+      else for (ClassDeclaration clazz : translated.getClasses()) {
+        GeneratedClass generated = new GeneratedClass(clazz);
+        generated.setBodies();
+        generated.makeClassFile().run();
+      }
 
-    for (ClassDeclaration clazz : program.getClasses()) codegen(clazz);
-    for (OperatorModuleDeclaration syntax : program.getOperatorsModules()) codegen(syntax);
+      for (OperatorModuleDeclaration syntax : translated.getOperatorsModules()) codegen(syntax);
+    });
   }
 
-  private void codegenFields (Program program) {
-    program.getClasses().stream().forEach(clazz -> {
-      JavaCodeGenerator gen = new JavaCodeGenerator(clazz.clazz);
-      for (CtField field : clazz.getDeclaredFields_Ordered()) {
-        FieldDeclaration decl = clazz.getField(field);
-        if (decl != null) codegen(decl, gen);
+  /* the classes nested in the same top-level class are generated in sequence by one task,
+   * since javassist may add accessor methods to the enclosing or nested classes while compiling a body.
+   * the class files are made in sequence after all the tasks : see GeneratedClass.makeClassFile.
+   * so the classes are the same as the ones emitted in sequence.
+   * the errors are reported in the order of the tasks. */
+  private void emitInParallel (Collection<ClassDeclaration> classes, Function<ClassDeclaration, GeneratedClass> generator) {
+    Map<String, List<ClassDeclaration>> groups = new LinkedHashMap<>();
+    for (ClassDeclaration clazz : classes) groups.computeIfAbsent(getTopLevelName(clazz.clazz), name -> new ArrayList<>()).add(clazz);
+
+    List<Supplier<List<GeneratedClass>>> tasks = new ArrayList<>();
+    for (List<ClassDeclaration> group : groups.values()) tasks.add(() -> {
+      List<GeneratedClass> generated = new ArrayList<>();
+      for (ClassDeclaration clazz : group) {
+        GeneratedClass g = generator.apply(clazz);
+        g.setBodies();
+        generated.add(g);
       }
+      return generated;
     });
+
+    List<Supplier<Void>> writers = new ArrayList<>();
+    for (List<GeneratedClass> group : DeferredDiagnostics.runAll(jobs, tasks)) {
+      for (GeneratedClass generated : group) writers.add(toTask(generated.makeClassFile()));
+    }
+
+    DeferredDiagnostics.runAll(jobs, writers);
+  }
+
+  private static String getTopLevelName (CtClass clazz) {
+    String name = clazz.getName();
+    int index = name.indexOf('$');
+    return index == -1 ? name : name.substring(0, index);
+  }
+
+  /* a pipeline generating the classes while the bodies are compiled : see BodyCompiler.compile(listener) */
+  public Pipeline pipeline () {
+    return new Pipeline();
+  }
+
+  /* the pipeline generates the Java code of the bodies of each class on the worker threads as soon as it is given.
+   * the other bodies are still compiled on the other threads, and they read the classes.
+   * so the classes are not changed until finish, which sets the bodies and writes the classes if no error is reported.
+   * it cannot translate lazy operators : see TranslateLazy.isRequired */
+  public class Pipeline implements Consumer<ClassDeclaration> {
+    private Pipeline () {
+      this.context = CompilationContext.current();
+      this.workers = Executors.newFixedThreadPool(jobs, task -> {
+        Thread thread = new Thread(task, "codegen");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    /* accept may be called on several threads at once */
+    @Override
+    public void accept (ClassDeclaration clazz) {
+      generated.put(clazz, DeferredDiagnostics.runAsync(context, () -> new GeneratedClass(clazz), workers));
+    }
+
+    /* called after all the bodies are compiled. the classes are changed only from now on : see emitInParallel */
+    public void finish (Program program) {
+      try {
+        CompileStats.getInstance().phase("codegen", () -> {
+          Map<ClassDeclaration, GeneratedClass> classes = new HashMap<>();
+          for (ClassDeclaration clazz : program.getClasses()) {
+            CompletableFuture<DeferredDiagnostics<GeneratedClass>> task = generated.get(clazz);
+            if (task != null) classes.put(clazz, task.join().replay());
+          }
+
+          if (ErrorList.hasError()) return;
+
+          codegenFields(program);
+          emitInParallel(program.getClasses(), clazz -> classes.containsKey(clazz) ? classes.get(clazz) : new GeneratedClass(clazz));
+
+          for (OperatorModuleDeclaration syntax : program.getOperatorsModules()) codegen(syntax);
+        });
+      } finally {
+        workers.shutdown();
+      }
+    }
+
+    private final CompilationContext context;
+    private final ExecutorService workers;
+    private final Map<ClassDeclaration, CompletableFuture<DeferredDiagnostics<GeneratedClass>>> generated = new ConcurrentHashMap<>();
   }
 
-  private void codegen (ClassDeclaration clazz) {
-    if (translateToJava) generateJavaCode(clazz);
-    else codegenByJavassist(clazz);
+  private static Supplier<Void> toTask (Runnable writer) {
+    return () -> {
+      writer.run();
+      return null;
+    };
   }
 
-  private void codegenByJavassist (ClassDeclaration clazz) {
+  private void codegenFields (Program program) {
+    program.getClasses().stream().forEach(this::codegenFields);
+  }
+
+  private void codegenFields (ClassDeclaration clazz) {
+    JavaCodeGenerator gen = new JavaCodeGenerator(clazz.clazz);
+    for (CtField field : clazz.getDeclaredFields_Ordered()) {
+      FieldDeclaration decl = clazz.getField(field);
+      if (decl != null) codegen(decl, gen);
+    }
+  }
+
+  /* a class generated in three steps.
+   * the Java code of the bodies is generated when it is made. it reads the classes but does not change them.
+   * setBodies compiles the bodies into the class. javassist may change the enclosing or nested classes meanwhile.
+   * makeClassFile makes the class file. javassist compacts the constant pool of the class while making it,
+   * and the members of the class read on the other threads at the same time may refer to the old constant pool.
+   * so the class files must be made while no other class is generated. */
+  private class GeneratedClass {
+    GeneratedClass (ClassDeclaration clazz) {
+      this.clazz = clazz;
+      this.javaCode = CompileStats.getInstance().file("codegen", clazz.filePath, () -> {
+        if (translateToJava) return JavaCodeGenerator.generateJavaCode(clazz);
+
+        codegenByJavassist(clazz, bodies);
+        return null;
+      });
+    }
+
+    void setBodies () {
+      CompileStats.getInstance().file("codegen", clazz.filePath, () -> bodies.forEach(Runnable::run));
+    }
+
+    /* makes the class file and returns the action writing it out */
+    Runnable makeClassFile () {
+      if (translateToJava) return () -> writeJavaCode(clazz, javaCode);
+
+      byte[] bytecode = CompileStats.getInstance().file("codegen", clazz.filePath, () -> toBytecode(clazz));
+      return () -> writeClassFile(clazz, bytecode);
+    }
+
+    private final ClassDeclaration clazz;
+    private final String javaCode;
+    private final List<Runnable> bodies = new ArrayList<>();
+  }
+
+  /* generates the Java code of the bodies, and adds the actions setting them to the class */
+  private void codegenByJavassist (ClassDeclaration clazz, List<Runnable> bodies) {
     JavaCodeGenerator gen = new JavaCodeGenerator(clazz.clazz);
 
     for (ClassInitializerDefinition clIni : clazz.getInitializers())
-      codegen(clIni, gen);
+      bodies.add(codegen(clIni, gen));
 
     for (ConstructorDeclaration constructor : clazz.getConstructors())
-      codegen(constructor, gen);
+      bodies.add(codegen(constructor, gen));
 
     for (MethodDeclaration method : clazz.getMethods())
-      codegen(method, gen);
+      bodies.add(codegen(method, gen));
 
     for (DefaultValueDefinition d : clazz.getDefaultValues())
-      codegen(d, gen);
+      bodies.add(codegen(d, gen));
+  }
 
+  private byte[] toBytecode (ClassDeclaration clazz) {
     try {
-      if (target != null) clazz.clazz.writeFile(target);
-      else clazz.clazz.writeFile();
+      return clazz.clazz.toBytecode();
     } catch (CannotCompileException e) {
       assert false;
       throw new RuntimeException(e);
-    } catch (NotFoundException e) {
-      ErrorList.addError(new NotFoundError(e, clazz.filePath, 0));
     } catch (IOException e) {
       ErrorList.addError(new FileIOError("can't write class file", clazz.filePath, 0));
+      return null;
     }
   }
 
-  private void generateJavaCode (ClassDeclaration clazz) {
-    try {
-      Path dirPath = Paths.get(target + "/" + clazz.filePath).getParent();
-      if (! Files.exists(dirPath)) dirPath = Files.createDirectories(dirPath);
+  private void writeClassFile (ClassDeclaration clazz, byte[] bytecode) {
+    if (bytecode == null) return;
 
-      Path path = Paths.get(dirPath.toString() + "/" + clazz.clazz.getSimpleName() + ".java");
-      if (! Files.exists(path)) path = Files.createFile(path);
+    Path path = Paths.get(target != null ? target : ".", clazz.clazz.getName().replace('.', File.separatorChar) + ".class");
+    try {
+      Files.createDirectories(path.getParent());
+      Files.write(path, bytecode);
+    } catch (IOException e) {
+      ErrorList.addError(new FileIOError("can't write class file", clazz.filePath, 0));
+    }
+  }
 
-      Writer writer = Files.newBufferedWriter(path, Charset.defaultCharset());
-      writer.write(JavaCodeGenerator.generateJavaCode(clazz));
-      writer.close();
+  private void writeJavaCode (ClassDeclaration clazz, String code) {
+    Path dirPath = Paths.get(target + "/" + clazz.filePath).getParent();
+    Path path = Paths.get(dirPath.toString() + "/" + clazz.clazz.getSimpleName() + ".java");
 
+    try {
+      Files.createDirectories(dirPath);
+      try (Writer writer = Files.newBufferedWriter(path, Charset.defaultCharset())) {
+        writer.write(code);
+      }
     } catch (IOException e) {
       e.printStackTrace();
     }
@@ -90,27 +245,21 @@ public class CodeGenerator {
 
   private void codegen (OperatorModuleDeclaration syntax) {
     try {
-      if(target != null) new OperatorsFile(syntax.syntax).write(target);
-      else new OperatorsFile(syntax.syntax).write();
+      if(target != null) new BinaryOperatorsFile(syntax.syntax).write(target);
+      else new BinaryOperatorsFile(syntax.syntax).write();
     } catch (CompileError e) {
       ErrorList.addError(e);
     }
   }
 
-  private void codegen (MethodDeclaration method, JavaCodeGenerator gen) {
-    try { method.method.setBody(gen.codeGen(method.body)); }
-    catch (CannotCompileException e) {
-      assert false;
-      throw new RuntimeException(e);
-    }
+  private Runnable codegen (MethodDeclaration method, JavaCodeGenerator gen) {
+    String code = method.code != null ? method.code : gen.codeGen(method.body);
+    return () -> setBody(method.method, code);
   }
 
-  private void codegen (ConstructorDeclaration constructor, JavaCodeGenerator gen) {
-    try { constructor.constructor.setBody(gen.codeGen(constructor.body)); }
-    catch (CannotCompileException e) {
-      assert false;
-      throw new RuntimeException(e);
-    }
+  private Runnable codegen (ConstructorDeclaration constructor, JavaCodeGenerator gen) {
+    String code = constructor.code != null ? constructor.code : gen.codeGen(constructor.body);
+    return () -> setBody(constructor.constructor, code);
   }
 
   private void codegen (FieldDeclaration field, JavaCodeGenerator gen) {
@@ -124,18 +273,25 @@ public class CodeGenerator {
     }
   }
 
-  private void codegen (DefaultValueDefinition defaultValue, JavaCodeGenerator gen) {
-    try { defaultValue.method.setBody(gen.codeGen(defaultValue.body)); }
-    catch (CannotCompileException e) {
-      assert false;
-      throw new RuntimeException(e);
-    }
+  private Runnable codegen (DefaultValueDefinition defaultValue, JavaCodeGenerator gen) {
+    String code = gen.codeGen(defaultValue.body);
+    return () -> setBody(defaultValue.method, code);
   }
 
-  private void codegen (ClassInitializerDefinition clIni, JavaCodeGenerator gen) {
-    try {
-      clIni.clIni.insertAfter(gen.codeGen(clIni.body));
-    } catch (CannotCompileException e) {
+  private Runnable codegen (ClassInitializerDefinition clIni, JavaCodeGenerator gen) {
+    String code = gen.codeGen(clIni.body);
+    return () -> {
+      try { clIni.clIni.insertAfter(code); }
+      catch (CannotCompileException e) {
+        assert false;
+        throw new RuntimeException(e);
+      }
+    };
+  }
+
+  private static void setBody (CtBehavior behavior, String code) {
+    try { behavior.setBody(code); }
+    catch (CannotCompileException e) {
       assert false;
       throw new RuntimeException(e);
     }
@@ -143,5 +299,6 @@ public class CodeGenerator {
 
   private final String target;
   private final boolean translateToJava;
+  private final int jobs;
 }
 
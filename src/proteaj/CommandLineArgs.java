@@ -23,6 +23,27 @@ public class CommandLineArgs {
   @Option(name = "-toJava", usage = "generate Java codes instead of class files")
   boolean translateToJava;
 
+  @Option(name = "-boundedmemo", usage = "discard parse results behind each statement of method bodies to save memory")
+  boolean boundedMemo;
+
+  @Option(name = "-j", metaVar = "<threads>", usage = "compile source files, method bodies and classes on the specified number of threads")
+  int jobs = 1;
+
+  @Option(name = "-incremental", usage = "compile only the source files changed since the last build into the destination and the files depending on them")
+  boolean incremental;
+
+  @Option(name = "-bodycache", metaVar = "<directory>", usage = "reuse the code generated from the method bodies parsed in the previous compilations, kept in the specified directory")
+  String bodyCache;
+
+  @Option(name = "-Xstats", metaVar = "<file>", usage = "write the time and the memory spent in each phase, file and method body to the specified file in JSON")
+  String statsFile;
+
+  @Option(name = "-Xparserstats", usage = "add the counters of the packrat parsers for each method body to the output of -Xstats")
+  boolean parserStats;
+
+  @Option(name = "-server", metaVar = "<port>", usage = "run as a compile server for pjc on the specified local port")
+  int serverPort;
+
   @Argument
   private List<String> args = new ArrayList<>();
 
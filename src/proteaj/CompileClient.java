@@ -0,0 +1,62 @@
+package proteaj;
+
+import java.io.*;
+import java.net.*;
+
+/* the thin client of CompileServer : it sends the working directory, the class path and the arguments to the server,
+ * and prints the output of the compilation. it does not load the compiler itself.
+ * usage : CompileClient <port> <arguments of the compiler> */
+public class CompileClient {
+  public static void main(String[] args) {
+    if (args.length == 0) {
+      System.err.println("Usage: CompileClient <port> <arguments of the compiler>");
+      System.exit(2);
+    }
+
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+      out.writeUTF(new File("").getAbsolutePath());
+      out.writeUTF(getAbsoluteClassPath());
+      out.writeInt(args.length - 1);
+      for (int i = 1; i < args.length; i++) out.writeUTF(args[i]);
+      out.flush();
+
+      System.exit(receive(in));
+    } catch (NumberFormatException e) {
+      System.err.println("invalid port : " + args[0]);
+      System.exit(2);
+    } catch (IOException e) {
+      System.err.println("can't connect to the compile server : " + e.getMessage());
+      System.exit(2);
+    }
+  }
+
+  private static String getAbsoluteClassPath() {
+    StringBuilder buf = new StringBuilder();
+    for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      if (path.isEmpty()) continue;
+      if (buf.length() > 0) buf.append(File.pathSeparator);
+      buf.append(new File(path).getAbsolutePath());
+    }
+    return buf.toString();
+  }
+
+  private static int receive(DataInputStream in) throws IOException {
+    while (true) {
+      int kind = in.readByte();
+      if (kind == CompileServer.EXIT) {
+        System.out.flush();
+        System.err.flush();
+        return in.readInt();
+      }
+
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+
+      if (kind == CompileServer.STDOUT) System.out.write(bytes);
+      else System.err.write(bytes);
+    }
+  }
+}
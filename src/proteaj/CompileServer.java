@@ -0,0 +1,140 @@
+package proteaj;
+
+import proteaj.env.CompilationContext;
+import proteaj.env.CompilerClassPool;
+import proteaj.error.ErrorList;
+import proteaj.pparser.PackratParser;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+import javassist.*;
+
+/* a compile server : it runs the compilations requested by CompileClient in one JVM,
+ * so the compiler is loaded and compiled by JIT only once.
+ * each request is compiled in its own CompilationContext, with the class path and the working directory of the client.
+ * the contexts share only the classes of the JDK, since the classes on the class path may be rewritten between requests.
+ * requests are compiled one at a time, since the output of a compilation goes to System.out and System.err. */
+public class CompileServer {
+  public CompileServer(int port) {
+    this.port = port;
+    this.jdkLoader = ClassLoader.getSystemClassLoader().getParent();
+    this.jdkClasses = new CompilerClassPool(jdkLoader);
+  }
+
+  public void run() {
+    PackratParser.recycleIds();
+
+    try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+      System.out.println("ProteaJ compile server is listening on port " + port);
+
+      while (true) try (Socket socket = server.accept()) {
+        serve(socket);
+      } catch (IOException e) {
+        System.err.println("compile server : " + e.getMessage());
+      }
+    } catch (IOException e) {
+      System.err.println("can't start compile server : " + e.getMessage());
+    }
+  }
+
+  /* request : the working directory and the class path of the client, the number of the arguments and the arguments.
+   * response : chunks of the standard output and error, and the exit status, which is 1 if the compilation has an error. */
+  private void serve(Socket socket) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+    File directory = new File(in.readUTF());
+    URL[] classPath = toURLs(in.readUTF());
+    String[] args = new String[in.readInt()];
+    for (int i = 0; i < args.length; i++) args[i] = in.readUTF();
+
+    Thread thread = Thread.currentThread();
+    ClassLoader loader = thread.getContextClassLoader();
+    PrintStream stdout = System.out;
+    PrintStream stderr = System.err;
+    PrintStream clientOut = new PrintStream(new Channel(out, STDOUT), true);
+    PrintStream clientErr = new PrintStream(new Channel(out, STDERR), true);
+
+    int status = 0;
+    System.setOut(clientOut);
+    System.setErr(clientErr);
+
+    /* the operators files and the classes are found through the context class loader, as in the JVM of the client */
+    try (URLClassLoader clientLoader = new URLClassLoader(classPath, jdkLoader)) {
+      thread.setContextClassLoader(clientLoader);
+      try (CompilationContext context = new CompilationContext(newClassPool(clientLoader), directory)) {
+        Compiler.run(CommandLineArgs.parse(args), context);
+        if (context.call(ErrorList::hasError)) status = 1;
+      }
+    } catch (Exception | Error e) {
+      e.printStackTrace();
+      status = 1;
+    } finally {
+      thread.setContextClassLoader(loader);
+      clientOut.flush();
+      clientErr.flush();
+      System.setOut(stdout);
+      System.setErr(stderr);
+    }
+
+    out.writeByte(EXIT);
+    out.writeInt(status);
+    out.flush();
+  }
+
+  private static URL[] toURLs(String classPath) throws MalformedURLException {
+    List<URL> urls = new ArrayList<>();
+    for (String path : classPath.split(File.pathSeparator)) {
+      if (! path.isEmpty()) urls.add(new File(path).toURI().toURL());
+    }
+    return urls.toArray(new URL[urls.size()]);
+  }
+
+  /* the classes of the JDK are found through the shared pool : see ClassPool.childFirstLookup.
+   * the others are found through the class loader of the client, on the class path of the client. */
+  private ClassPool newClassPool(ClassLoader clientLoader) {
+    return new CompilerClassPool(jdkClasses, clientLoader);
+  }
+
+  /* an output stream sending its bytes to the client as the chunks of the kind */
+  private static class Channel extends OutputStream {
+    Channel(DataOutputStream out, int kind) {
+      this.out = out;
+      this.kind = kind;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] { (byte)b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      synchronized (out) {
+        out.writeByte(kind);
+        out.writeInt(len);
+        out.write(b, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      synchronized (out) {
+        out.flush();
+      }
+    }
+
+    private final DataOutputStream out;
+    private final int kind;
+  }
+
+  static final int EXIT   = 0;
+  static final int STDOUT = 1;
+  static final int STDERR = 2;
+
+  private final int port;
+  private final ClassLoader jdkLoader;
+  private final ClassPool jdkClasses;
+}
@@ -1,11 +1,15 @@
 package proteaj;
 
+import proteaj.codegen.lazy.TranslateLazy;
+import proteaj.env.CompilationContext;
 import proteaj.env.type.RootTypeResolver;
 import proteaj.error.*;
+import proteaj.ast.CompilationUnit;
 import proteaj.ir.IR;
 import proteaj.tast.Program;
+import proteaj.util.CompileStats;
 
-import java.io.File;
+import java.io.*;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -15,35 +19,97 @@ public class Compiler {
   public static void main(String[] argsArray) {
     CommandLineArgs args = CommandLineArgs.parse(argsArray);
 
+    if (! args.failedToParse() && args.serverPort > 0) new CompileServer(args.serverPort).run();
+    else try (CompilationContext context = new CompilationContext()) {
+      run(args, context);
+    } catch (IOException e) {
+      Warning.print("can't release the resources of the compilation : " + e.getMessage());
+    }
+  }
+
+  /* each compilation has its own context : class pool, error list, common types, ...
+   * the compile server runs each request in a new context. */
+  static void run(CommandLineArgs args, CompilationContext context) {
     if (args.failedToParse()) args.printFailMessage();
     else if (args.usageFlag) args.printUsage();
     else if (args.versionFlag) System.out.println("ProteaJ compiler version " + version);
-    else if (args.hasArgs()) new Compiler(args).compile();
+    else if (args.hasArgs()) context.run(new Compiler(args)::compile);
     else args.printUsage();
   }
 
   private void compile() {
-    if (args.isDebugMode) ForDebug.setVerboseFlag();
+    ForDebug.setVerboseFlag(args.isDebugMode);
+
+    CompilationContext context = CompilationContext.current();
+    CompileStats stats = CompileStats.getInstance();
+    if (args.statsFile != null) stats.enable();
+    if (args.statsFile != null && args.parserStats) stats.enableParserCounters();
+
+    String classPath = Arrays.stream(args.additionalClassPath.split(File.pathSeparator))
+        .filter(path -> ! path.isEmpty()).map(context::resolve).collect(Collectors.joining(File.pathSeparator));
 
-    if (! args.additionalClassPath.isEmpty()) try {
-      RootTypeResolver.getInstance().appendClassPath(args.additionalClassPath);
+    if (! classPath.isEmpty()) try {
+      RootTypeResolver.getInstance().appendClassPath(classPath);
     } catch (NotFoundError e) {
       System.err.println("invalid class path : " + args.additionalClassPath);
       return;
     }
 
+    String destination = context.resolve(args.destination);
+
+    /* the classes of the files not compiled again are read from the destination */
+    IncrementalBuild build;
+    if (args.incremental && ! args.translateToJava) try {
+      build = new IncrementalBuild(destination, classPath);
+      RootTypeResolver.getInstance().appendClassPath(destination);
+    } catch (NotFoundError e) {
+      System.err.println("invalid destination : " + args.destination);
+      return;
+    }
+    else build = null;
+
     ErrorList.init();
 
     try {
       List<File> files = args.getArgs().stream().map(File::new).collect(Collectors.toList());
-      IR ir = new SigCompiler().compile(files);
-      Program program = new BodyCompiler(ir).compile();
+      SigCompiler sigCompiler = new SigCompiler(args.jobs);
+      List<CompilationUnit> cunits = stats.phase("signatures", () -> build != null ? build.parse(files, sigCompiler) : sigCompiler.parse(files));
+      if (build != null && cunits.isEmpty()) return;
 
-      if (! ErrorList.hasError()) new CodeGenerator(args.destination, args.translateToJava).codegen(program);
+      IR ir = stats.phase("ir", () -> new SigIRGenerator(cunits).generateIR());
+
+      /* the cached bodies are given as Java code, which can't be translated to Java files or for lazy operators */
+      BodyCache cache = null;
+      if (args.bodyCache != null && ! args.translateToJava && ! TranslateLazy.isRequired(ir)) {
+        cache = new BodyCache(context.resolve(new File(args.bodyCache)), ir);
+      }
+
+      BodyCompiler bodyCompiler = new BodyCompiler(ir, args.boundedMemo, args.jobs, cache);
+      CodeGenerator codeGenerator = new CodeGenerator(destination, args.translateToJava, args.jobs);
+
+      /* with several threads, the classes are generated while the other classes are compiled.
+       * then the phase bodies includes the classes generated until all the bodies are compiled. */
+      if (args.jobs > 1 && ! TranslateLazy.isRequired(ir)) {
+        CodeGenerator.Pipeline pipeline = codeGenerator.pipeline();
+        Program program = stats.phase("bodies", () -> bodyCompiler.compile(pipeline));
+        pipeline.finish(program);
+      }
+      else {
+        Program program = stats.phase("bodies", () -> bodyCompiler.compile());
+        if (! ErrorList.hasError()) codeGenerator.codegen(program);
+      }
+
+      if (build != null && ! ErrorList.hasError()) build.record(ir);
     } finally {
       if(ErrorList.hasError()) {
         ErrorList.printAllErrors();
       }
+
+      if (args.statsFile != null) try {
+        stats.write(context.resolve(new File(args.statsFile)));
+      } catch (FileIOError e) {
+        Warning.print("can't write the statistics to " + e.getFile());
+      }
     }
   }
 
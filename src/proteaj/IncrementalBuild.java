@@ -0,0 +1,186 @@
+package proteaj;
+
+import proteaj.ast.*;
+import proteaj.env.CompilationContext;
+import proteaj.error.*;
+import proteaj.io.*;
+import proteaj.io.BuildStateFile.Source;
+import proteaj.ir.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+
+import static proteaj.util.Digests.sha1;
+
+/* incremental compilation : the source files not changed since the last build into the destination are not compiled again,
+ * and their classes and operators modules are read from the destination.
+ * a changed file is compiled again. if its signature, the declarations without the method bodies, is changed,
+ * the files depending on its classes or operators modules, or importing its package, are compiled again too.
+ * a depending file is treated as changed, since its classes may expose the changed classes to the other files. */
+public class IncrementalBuild {
+  public IncrementalBuild(String destination, String classPath) {
+    this.destination = destination;
+    this.stateFile = new File(destination, STATE_FILE_NAME);
+    this.state = BuildStateFile.load(stateFile, Compiler.version + File.pathSeparator + classPath);
+  }
+
+  /* reads, parses and checks the files to be compiled. returns an empty list if no file is changed. */
+  public List<CompilationUnit> parse (List<File> files, SigCompiler compiler) {
+    Map<String, File> unchanged = new LinkedHashMap<>();
+    List<File> changed = new ArrayList<>();
+
+    for (File file : files) {
+      String key = getKey(file);
+      String hash = hash(file);
+      keys.put(file.getPath(), key);
+      hashes.put(file.getPath(), hash);
+
+      Source source = state.getSource(key);
+      if (source != null && source.hash.equals(hash) && hasOutputs(source)) unchanged.put(key, file);
+      else changed.add(file);
+    }
+
+    cunits.addAll(compiler.parse(changed));
+
+    Set<String> names = new HashSet<>();
+    Set<String> packages = new HashSet<>();
+    for (CompilationUnit cunit : cunits) collectChanges(cunit, names, packages);
+
+    List<File> dependents = new ArrayList<>();
+    for (Source source : findDependents(names, packages)) {
+      if (unchanged.containsKey(source.path)) dependents.add(unchanged.get(source.path));
+      else source.invalidate();
+    }
+
+    cunits.addAll(compiler.parse(dependents));
+    cunits.sort(Comparator.comparing(cunit -> files.indexOf(new File(cunit.filePath))));
+
+    ForDebug.print("[ incremental ] compiles " + cunits.size() + " of " + files.size() + " files");
+    return cunits;
+  }
+
+  /* records the compiled files after their classes are written */
+  public void record (IR ir) {
+    Map<String, Source> sources = new HashMap<>();
+
+    for (CompilationUnit cunit : cunits) {
+      FileHeader header = cunit.header;
+      Source source = new Source(keys.get(cunit.filePath), hashes.get(cunit.filePath), sha1(cunit.signature), header.getPackName());
+
+      source.importPackages.addAll(header.getImportPackages());
+      source.importClasses.addAll(header.getImportClasses());
+      source.usingSyntax.addAll(header.getUsingSyntax());
+      source.unusingSyntax.addAll(header.getUnusingSyntax());
+      source.dependencies.addAll(header.getUsingSyntax());
+
+      sources.put(cunit.filePath, source);
+    }
+
+    for (IRClass clazz : ir.getClasses()) {
+      Source source = sources.get(clazz.header.filePath);
+      source.classes.add(clazz.clazz.getName());
+      source.dependencies.addAll(clazz.resolver.getResolvedClassNames());
+    }
+
+    for (IRSyntax syntax : ir.getSyntax()) {
+      Source source = sources.get(syntax.filePath);
+      source.operators.add(syntax.name);
+      if (syntax.hasBaseIRSyntax()) source.dependencies.add(syntax.getBaseIRSyntax().name);
+    }
+
+    for (Source source : sources.values()) {
+      source.dependencies.removeAll(source.getExports());
+      state.putSource(source);
+    }
+
+    try { state.write(stateFile); }
+    catch (FileIOError e) { ErrorList.addError(e); }
+  }
+
+  /* the names of the classes and the operators modules a changed file declared or declares,
+   * and the package where a class is added or removed. nothing is collected if the signature is not changed. */
+  private void collectChanges (CompilationUnit cunit, Set<String> names, Set<String> packages) {
+    Source source = state.getSource(keys.get(cunit.filePath));
+    if (source != null && source.signature.equals(sha1(cunit.signature))) return;
+
+    String packageName = cunit.header.getPackName();
+    Set<String> exports = new TreeSet<>();
+    for (ClassDecl cdecl : cunit.body.getClasses()) exports.add(appendPackageName(packageName, cdecl.getName()));
+    for (InterfaceDecl idecl : cunit.body.getInterfaces()) exports.add(appendPackageName(packageName, idecl.getName()));
+    for (SyntaxDecl sdecl : cunit.body.getSyntax()) exports.add(appendPackageName(packageName, sdecl.getName()));
+
+    names.addAll(exports);
+    if (source == null || ! source.getExports().equals(exports)) packages.add(packageName);
+
+    if (source != null) {
+      names.addAll(source.getExports());
+      if (! source.getExports().equals(exports)) packages.add(source.packageName);
+    }
+  }
+
+  /* the recorded files depending on the names or the packages, directly or through the other depending files */
+  private Collection<Source> findDependents (Set<String> names, Set<String> packages) {
+    Set<String> compiled = new HashSet<>();
+    for (CompilationUnit cunit : cunits) compiled.add(keys.get(cunit.filePath));
+
+    Map<String, Source> dependents = new LinkedHashMap<>();
+    boolean found = true;
+
+    while (found) {
+      found = false;
+      for (Source source : state.getSources()) {
+        if (compiled.contains(source.path) || dependents.containsKey(source.path)) continue;
+        if (dependsOn(source, names, packages)) {
+          dependents.put(source.path, source);
+          names.addAll(source.getExports());
+          found = true;
+        }
+      }
+    }
+
+    return dependents.values();
+  }
+
+  private boolean dependsOn (Source source, Set<String> names, Set<String> packages) {
+    if (packages.contains(source.packageName)) return true;
+    for (String pack : source.importPackages) if (packages.contains(pack)) return true;
+    for (String name : source.dependencies) if (names.contains(name)) return true;
+    return false;
+  }
+
+  private boolean hasOutputs (Source source) {
+    for (String name : source.classes) {
+      if (! new File(destination, name.replace('.', File.separatorChar) + ".class").isFile()) return false;
+    }
+    for (String name : source.operators) {
+      if (! new File(BinaryOperatorsFile.ops2path(destination, name)).isFile()) return false;
+    }
+    return true;
+  }
+
+  private static String getKey (File file) {
+    return CompilationContext.current().resolve(file).getAbsoluteFile().toPath().normalize().toString();
+  }
+
+  /* the hash of the content of the file, or an empty string if it can't be read */
+  private static String hash (File file) {
+    try { return sha1(Files.readAllBytes(CompilationContext.current().resolve(file).toPath())); }
+    catch (IOException e) { return ""; }
+  }
+
+  private static String appendPackageName (String packageName, String shortName) {
+    if (packageName.equals("")) return shortName;
+    else return packageName + '.' + shortName;
+  }
+
+  public static final String STATE_FILE_NAME = ".pjc-build";
+
+  private final String destination;
+  private final File stateFile;
+  private final BuildStateFile state;
+
+  private final List<CompilationUnit> cunits = new ArrayList<>();
+  private final Map<String, String> keys = new HashMap<>();
+  private final Map<String, String> hashes = new HashMap<>();
+}
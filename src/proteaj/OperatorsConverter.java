@@ -0,0 +1,44 @@
+package proteaj;
+
+import proteaj.error.*;
+import proteaj.io.*;
+
+import java.io.File;
+
+/* converts operators files between the binary format and the XML format, without the class path.
+ * each file is written next to the given one, with the extension of the other format.
+ * usage : OperatorsConverter <file.pjops | file.ops>... */
+public class OperatorsConverter {
+  public static void main(String[] args) {
+    if (args.length == 0) {
+      System.err.println("Usage: OperatorsConverter <file.pjops | file.ops>...");
+      System.exit(2);
+    }
+
+    int status = 0;
+    for (String arg : args) try {
+      convert(new File(arg));
+    } catch (CompileError e) {
+      System.err.println(arg + " : " + e.getMessage());
+      status = 1;
+    }
+
+    System.exit(status);
+  }
+
+  public static File convert(File file) throws CompileError {
+    String path = file.getPath();
+
+    if (path.endsWith(".pjops")) {
+      File xml = new File(path.substring(0, path.length() - ".pjops".length()) + ".ops");
+      BinaryOperatorsFile.open(file).toXML().write(xml);
+      return xml;
+    }
+    else if (path.endsWith(".ops")) {
+      File binary = new File(path.substring(0, path.length() - ".ops".length()) + ".pjops");
+      OperatorsFile.open(file).toBinary().write(binary);
+      return binary;
+    }
+    else throw new FileIOError("unknown format of operators file", path, 0);
+  }
+}
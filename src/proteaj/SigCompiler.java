@@ -1,33 +1,70 @@
 package proteaj;
 
+import proteaj.env.CompilationContext;
 import proteaj.error.*;
 import proteaj.ast.*;
 import proteaj.io.*;
 import proteaj.ir.*;
+import proteaj.util.CompileStats;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.io.File;
 
 public class SigCompiler {
+  public SigCompiler() {
+    this(1);
+  }
+
+  /* jobs : the number of threads reading and checking the files. files are read in sequence if it is 1. */
+  public SigCompiler(int jobs) {
+    this.jobs = jobs;
+  }
+
   public IR compile(Collection<File> files) {
+    SigIRGenerator irgen = new SigIRGenerator(parse(files));
+    return irgen.generateIR();
+  }
+
+  /* reads, parses and checks the files. the files with errors are left out. */
+  public List<CompilationUnit> parse(Collection<File> files) {
     List<CompilationUnit> cunits = new ArrayList<CompilationUnit>();
 
-    for(File file : files) try {
-      SourceFileReader reader = new SourceFileReader(file);
-      SigLexer lexer = new SigLexer(reader);
-      SigParser parser = new SigParser(lexer);
+    /* the errors of each file are reported in the order of the files : see BodyCompiler.compileAll */
+    if (jobs > 1 && files.size() > 1) {
+      List<Supplier<CompilationUnit>> tasks = new ArrayList<>();
+      for (File file : files) tasks.add(() -> compileFile(file));
+
+      for (CompilationUnit cunit : DeferredDiagnostics.runAll(jobs, tasks)) {
+        if (cunit != null) cunits.add(cunit);
+      }
+    }
+    else for (File file : files) {
+      CompilationUnit cunit = compileFile(file);
+      if (cunit != null) cunits.add(cunit);
+    }
+
+    return cunits;
+  }
 
-      CompilationUnit cunit = parser.parseCompilationUnit();
+  /* reads, parses and checks a file. returns null if it has an error. */
+  private CompilationUnit compileFile(File file) {
+    CompileStats stats = CompileStats.getInstance();
+    String filePath = file.getPath();
 
-      SigSemanticsChecker checker = new SigSemanticsChecker(cunit);
-      if(checker.checkAll()) cunits.add(cunit);
+    try {
+      SourceFileReader reader = stats.file("read", filePath, () -> new SourceFileReader(CompilationContext.current().resolve(file), filePath));
+      SigLexer lexer = stats.file("lex", filePath, () -> new SigLexer(reader));
+      CompilationUnit cunit = stats.file("parse", filePath, () -> new SigParser(lexer).parseCompilationUnit());
+
+      if (stats.file("check", filePath, () -> new SigSemanticsChecker(cunit).checkAll())) return cunit;
     } catch (FileIOError e) {
       ErrorList.addError(e);
     } catch (ParseError e) {
       ErrorList.addError(e);
     }
-
-    SigIRGenerator irgen = new SigIRGenerator(cunits);
-    return irgen.generateIR();
+    return null;
   }
+
+  private final int jobs;
 }
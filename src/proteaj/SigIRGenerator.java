@@ -79,7 +79,7 @@ public class SigIRGenerator {
   }
 
   private Map<IRClass, ClassDecl> registerClasses(Collection<Pair<IRHeader, FileBody>> files, IR ir) {
-    Map<IRClass, ClassDecl> classes = new HashMap<>();
+    Map<IRClass, ClassDecl> classes = new LinkedHashMap<>();
 
     for(Pair<IRHeader, FileBody> pair : files) {
       IRHeader header = pair._1;
@@ -96,7 +96,7 @@ public class SigIRGenerator {
   }
 
   private Map<IRClass, InterfaceDecl> registerInterfaces(Collection<Pair<IRHeader, FileBody>> files, IR ir) {
-    Map<IRClass, InterfaceDecl> ifaces = new HashMap<>();
+    Map<IRClass, InterfaceDecl> ifaces = new LinkedHashMap<>();
 
     for(Pair<IRHeader, FileBody> pair : files) {
       IRHeader hdata = pair._1;
@@ -113,7 +113,7 @@ public class SigIRGenerator {
   }
 
   private Map<Pair<IRSyntax, IRClass>, SyntaxDecl> registerSyntax(Collection<Pair<IRHeader, FileBody>> files, IR ir) {
-    Map<Pair<IRSyntax, IRClass>, SyntaxDecl> syntaxMap = new HashMap<>();
+    Map<Pair<IRSyntax, IRClass>, SyntaxDecl> syntaxMap = new LinkedHashMap<>();
 
     for(Pair<IRHeader, FileBody> pair : files) {
       IRHeader header = pair._1;
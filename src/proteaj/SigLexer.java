@@ -90,6 +90,22 @@ public class SigLexer {
     return filePath;
   }
 
+  /* marks the tokens of a method body, which are left out of the signature */
+  public void markBody(int begin, int end) {
+    bodies.set(begin, end);
+  }
+
+  /* the visible tokens out of the method bodies : the part of the file the other files can depend on */
+  public String getSignature() {
+    StringBuilder buf = new StringBuilder();
+
+    for(int i = 0; i < tokens.size(); i++) {
+      if(tokens.get(i).isVisible() && ! bodies.get(i)) buf.append(tokens.get(i)).append(' ');
+    }
+
+    return buf.toString();
+  }
+
   // skip WhiteSpace and BadToken
   private int getNextVisibleToken(int i) {
     i++;
@@ -300,6 +316,7 @@ public class SigLexer {
   private int current;
   private List<Token> tokens;
   private EofToken eof;
+  private BitSet bodies = new BitSet();
 
   private String filePath;
 
@@ -23,7 +23,7 @@ public class SigParser {
     FileHeader header = parseFileHeader();
     FileBody body = parseFileBody();
 
-    return new CompilationUnit(filePath, header, body);
+    return new CompilationUnit(filePath, header, body, lexer.getSignature());
   }
 
   /* FileHeader
@@ -960,6 +960,7 @@ public class SigParser {
     int begin = lexer.getPos();
     int end = corresponds.get(lBrace);
 
+    lexer.markBody(begin + 1, end);
     lexer.setPos(end);
     assert lexer.lookahead().is('}');
     lexer.next();
@@ -9,9 +9,9 @@ public class ClassDecl extends AST {
     this.name = name;
     this.superClass = null;
     this.interfaces = new ArrayList<String>();
-    this.sinits = new HashSet<StaticInitializer>();
-    this.constructors = new HashSet<ConstructorDecl>();
-    this.methods = new HashSet<MethodDecl>();
+    this.sinits = new LinkedHashSet<StaticInitializer>();
+    this.constructors = new LinkedHashSet<ConstructorDecl>();
+    this.methods = new LinkedHashSet<MethodDecl>();
     this.fields = new ArrayList<FieldDecl>();
   }
 
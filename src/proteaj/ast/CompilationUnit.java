@@ -1,15 +1,19 @@
 package proteaj.ast;
 
 public class CompilationUnit extends AST {
-  public CompilationUnit(String filePath, FileHeader header, FileBody body) {
+  public CompilationUnit(String filePath, FileHeader header, FileBody body, String signature) {
     super(header);
     this.filePath = filePath;
     this.header = header;
     this.body = body;
+    this.signature = signature;
   }
 
   public final String filePath;
   public final FileHeader header;
   public final FileBody body;
+
+  /* the declarations of the file without the method bodies : see SigLexer.getSignature */
+  public final String signature;
 }
 
@@ -5,9 +5,9 @@ import java.util.*;
 public class FileBody extends AST {
   public FileBody(int line) {
     super(line);
-    classes = new HashSet<ClassDecl>();
-    interfaces = new HashSet<InterfaceDecl>();
-    syntax = new HashSet<SyntaxDecl>();
+    classes = new LinkedHashSet<ClassDecl>();
+    interfaces = new LinkedHashSet<InterfaceDecl>();
+    syntax = new LinkedHashSet<SyntaxDecl>();
   }
 
   public void addClass(ClassDecl cdecl) {
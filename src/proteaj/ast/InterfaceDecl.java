@@ -8,8 +8,8 @@ public class InterfaceDecl extends AST {
     this.modifiers = 0;
     this.name = name;
     this.interfaces = new ArrayList<String>();
-    this.methods = new HashSet<MethodDecl>();
-    this.fields = new HashSet<FieldDecl>();
+    this.methods = new LinkedHashSet<MethodDecl>();
+    this.fields = new LinkedHashSet<FieldDecl>();
   }
 
   public void setModifiers(int modifiers) {
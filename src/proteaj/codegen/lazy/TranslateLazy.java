@@ -12,6 +12,28 @@ public class TranslateLazy {
     this.program = program;
   }
 
+  /* whether the operator modules of the program declare lazy operators.
+   * if not, the translation does not change the program. */
+  public static boolean isRequired (IR ir) {
+    return isRequired(ir.getSyntax());
+  }
+
+  public static boolean isRequired (Program program) {
+    List<IRSyntax> syntax = new ArrayList<>();
+    for (OperatorModuleDeclaration module : program.getOperatorsModules()) syntax.add(module.syntax);
+    return isRequired(syntax);
+  }
+
+  private static boolean isRequired (Collection<IRSyntax> syntax) {
+    for (IRSyntax module : syntax) for (IROperator operator : module.getOperators()) {
+      IRPattern pattern = operator.pattern;
+      for (int i = 0; i < pattern.getPatternLength(); i++) {
+        if (pattern.isOperand(i) && pattern.isLazy(i)) return true;
+      }
+    }
+    return false;
+  }
+
   public Program translate () {
     List<ClassDeclaration> generated = new ArrayList<ClassDeclaration>();
     Map<IROperator, Pair<CtMethod, Map<Integer, CtMethod>>> methods = new HashMap<IROperator, Pair<CtMethod, Map<Integer, CtMethod>>>();
@@ -0,0 +1,97 @@
+package proteaj.env;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import javassist.*;
+
+/* the state shared by the phases of one compilation : the class pool and the per-compilation singletons
+ * (ErrorList, RootTypeResolver, CommonTypes, the primitive operators, ...).
+ * a context is bound to the threads working on its compilation, and the static accessors of those singletons
+ * refer to the context of the current thread. so several compilations can run in one JVM. */
+public class CompilationContext implements Closeable {
+  public CompilationContext() {
+    this(new CompilerClassPool(true));
+  }
+
+  public CompilationContext(ClassPool pool) {
+    this(pool, null);
+  }
+
+  /* directory : where relative paths are resolved, or null for the working directory of this process */
+  public CompilationContext(ClassPool pool, File directory) {
+    this.pool = pool;
+    this.directory = directory;
+  }
+
+  /* the context bound to the current thread, or the default context if none is bound */
+  public static CompilationContext current() {
+    CompilationContext context = bound.get();
+    if (context != null) return context;
+    else return getDefault();
+  }
+
+  /* runs the task with this context bound to the current thread */
+  public <T> T call(Supplier<T> task) {
+    CompilationContext outer = bound.get();
+    bound.set(this);
+    try { return task.get(); }
+    finally {
+      if (outer != null) bound.set(outer);
+      else bound.remove();
+    }
+  }
+
+  public void run(Runnable task) {
+    call(() -> {
+      task.run();
+      return null;
+    });
+  }
+
+  public File resolve (File file) {
+    if (directory == null || file.isAbsolute()) return file;
+    else return new File(directory, file.getPath());
+  }
+
+  public String resolve (String path) {
+    return resolve(new File(path)).getPath();
+  }
+
+  /* releases the resources held by the singletons, such as the jar files on the class path */
+  @Override
+  public void close () throws IOException {
+    for (Object instance : instances.values()) {
+      if (instance instanceof Closeable) ((Closeable)instance).close();
+    }
+  }
+
+  /* the instance of a per-compilation singleton, created by the factory on first use */
+  public <T> T get(Class<T> key, Supplier<T> factory) {
+    Object instance = instances.get(key);
+    if (instance == null) synchronized (this) {
+      instance = instances.get(key);
+      if (instance == null) {
+        instance = factory.get();
+        instances.put(key, instance);
+      }
+    }
+    return key.cast(instance);
+  }
+
+  public final ClassPool pool;
+  private final File directory;
+
+  private final Map<Class<?>, Object> instances = new ConcurrentHashMap<>();
+
+  private static synchronized CompilationContext getDefault() {
+    if (defaultContext == null) defaultContext = new CompilationContext(ClassPool.getDefault());
+    return defaultContext;
+  }
+
+  private static CompilationContext defaultContext = null;
+
+  private static final ThreadLocal<CompilationContext> bound = new ThreadLocal<>();
+}
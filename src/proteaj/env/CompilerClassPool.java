@@ -0,0 +1,43 @@
+package proteaj.env;
+
+import javassist.*;
+
+/* a class pool shared by the threads of a compilation, and by the compilations of the compile server as the parent pool.
+ * an array type fills its interfaces lazily without synchronization : see javassist.CtArray.getInterfaces.
+ * so they are filled here, while the pool is locked, before the array type is handed to any thread. */
+public class CompilerClassPool extends ClassPool {
+  /* a pool searching the class path of the system class loader if useDefaultPath, as ClassPool(boolean) */
+  public CompilerClassPool(boolean useDefaultPath) {
+    super(useDefaultPath);
+    this.loader = useDefaultPath ? ClassLoader.getSystemClassLoader() : null;
+  }
+
+  /* a pool searching the classes found through the class loader */
+  public CompilerClassPool(ClassLoader loader) {
+    this(null, loader);
+  }
+
+  /* a pool searching the classes found through the class loader, after those of the parent pool */
+  public CompilerClassPool(ClassPool parent, ClassLoader loader) {
+    super(parent);
+    appendClassPath(new LoaderClassPath(loader));
+    this.loader = loader;
+  }
+
+  /* the class loader through which this pool searches the classes, apart from the class paths appended later,
+   * or null if it has none. the classes of the parent pool are found through it too. */
+  public ClassLoader getClassPathLoader() {
+    return loader;
+  }
+
+  @Override
+  protected CtClass createCtClass(String classname, boolean useCache) {
+    CtClass clazz = super.createCtClass(classname, useCache);
+    if (clazz != null && clazz.isArray()) try {
+      clazz.getInterfaces();
+    } catch (NotFoundException e) {}
+    return clazz;
+  }
+
+  private final ClassLoader loader;
+}
@@ -1,5 +1,6 @@
 package proteaj.env.operator;
 
+import proteaj.env.CompilationContext;
 import proteaj.error.*;
 import proteaj.ir.IRSyntax;
 import proteaj.ir.OperatorPool;
@@ -8,8 +9,7 @@ import java.util.*;
 
 public class RootOperatorEnvironment extends OperatorEnvironment {
   public static RootOperatorEnvironment getInstance() {
-    if (instance == null) instance = new RootOperatorEnvironment();
-    return instance;
+    return CompilationContext.current().get(RootOperatorEnvironment.class, RootOperatorEnvironment::new);
   }
 
   public IRSyntax getSyntaxOrNull (String name) {
@@ -55,6 +55,4 @@ public class RootOperatorEnvironment extends OperatorEnvironment {
   private final OperatorPool pool;
 
   private List<IRSyntax> syntaxList = null;
-
-  private static RootOperatorEnvironment instance = null;
 }
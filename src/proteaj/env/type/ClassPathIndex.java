@@ -0,0 +1,146 @@
+package proteaj.env.type;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.jar.*;
+
+/* the class files on the class path of a compilation, to tell a name of no class without searching the class path.
+ * the class path is that of the class pool : the boot class path and the class path of the class loader the pool searches,
+ * which is the system class loader, or the class loader of the client in the compile server : see CompilerClassPool,
+ * and the entries appended by RootTypeResolver.appendClassPath.
+ * a jar file is indexed by its own table of the entries, read once when it is opened.
+ * a directory is indexed package by package : the directory of a package is listed when a class of it is first looked up.
+ * the jar files of the JVM are opened once in this JVM. the other jar files are opened in each compilation,
+ * and the directories are listed again in each compilation. */
+class ClassPathIndex {
+  /* the index of the class path searched through the class loader, or null if the class path is not made of jar files and directories.
+   * a jar file not on the class path of the JVM is opened by openJar, which returns null if it can't be opened. */
+  static ClassPathIndex of (ClassLoader loader, Function<File, JarFile> openJar) {
+    Map<File, JarFile> classPath = getClassPath(loader, openJar);
+    if (classPath == null) return null;
+
+    ClassPathIndex index = new ClassPathIndex();
+    for (Map.Entry<File, JarFile> entry : classPath.entrySet()) {
+      if (entry.getValue() != null) index.addJar(entry.getValue());
+      else index.addDirectory(entry.getKey());
+    }
+    return index;
+  }
+
+  /* a jar file appended to the class path : see javassist.JarClassPath */
+  void addJar (JarFile jar) {
+    locations.add(path -> jar.getEntry(path) != null);
+  }
+
+  /* a directory appended to the class path : see javassist.DirClassPath */
+  void addDirectory (File directory) {
+    Map<String, Set<String>> packages = new ConcurrentHashMap<>();
+    locations.add(path -> {
+      int index = path.lastIndexOf('/');
+      String pack = index < 0 ? "" : path.substring(0, index);
+      return packages.computeIfAbsent(pack, p -> list(new File(directory, p))).contains(path.substring(index + 1));
+    });
+  }
+
+  /* whether the class of the name may be on the class path */
+  boolean contains (String className) {
+    String path = className.replace('.', '/') + ".class";
+    for (Location location : locations) {
+      if (location.contains(path)) return true;
+    }
+    return false;
+  }
+
+  private static Set<String> list (File directory) {
+    String[] names = directory.list();
+    if (names == null) return Collections.emptySet();
+    else return new HashSet<>(Arrays.asList(names));
+  }
+
+  /* the boot class path, and the class path of the class loader and its parents with the Class-Path of their jar files,
+   * each mapped to its jar file, or to null if it is a directory.
+   * returns null if a class loader is not a URLClassLoader, as on Java 9 and later, or if a jar file can't be opened */
+  private static Map<File, JarFile> getClassPath (ClassLoader loader, Function<File, JarFile> openJar) {
+    String bootPath = System.getProperty("sun.boot.class.path");
+    if (bootPath == null) return null;
+
+    Map<File, JarFile> files = new LinkedHashMap<>();
+    Function<File, JarFile> openSystemJar = file -> systemJars.computeIfAbsent(file, ClassPathIndex::openOrNull);
+    for (String path : bootPath.split(File.pathSeparator)) {
+      if (! path.isEmpty() && ! addFile(new File(path), files, openSystemJar)) return null;
+    }
+
+    Set<ClassLoader> systemLoaders = new HashSet<>();
+    for (ClassLoader system = ClassLoader.getSystemClassLoader(); system != null; system = system.getParent()) {
+      systemLoaders.add(system);
+    }
+
+    Set<URL> visited = new HashSet<>();
+    for (; loader != null; loader = loader.getParent()) {
+      if (! (loader instanceof URLClassLoader)) return null;
+      Function<File, JarFile> open = systemLoaders.contains(loader) ? openSystemJar : openJar;
+      for (URL url : ((URLClassLoader)loader).getURLs()) {
+        if (! addURL(url, files, visited, open)) return null;
+      }
+    }
+
+    return files;
+  }
+
+  private static boolean addURL (URL url, Map<File, JarFile> files, Set<URL> visited, Function<File, JarFile> openJar) {
+    if (! visited.add(url)) return true;
+    if (! url.getProtocol().equals("file")) return false;
+
+    final File file;
+    try { file = new File(url.toURI()); } catch (URISyntaxException | IllegalArgumentException e) {
+      return false;
+    }
+    if (! addFile(file, files, openJar)) return false;
+
+    JarFile jar = files.get(file);
+    if (jar == null) return true;
+
+    try {
+      Manifest manifest = jar.getManifest();
+      String classPath = manifest != null ? manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) : null;
+      if (classPath != null) for (String path : classPath.trim().split("\\s+")) {
+        if (! path.isEmpty() && ! addURL(new URL(url, path), files, visited, openJar)) return false;
+      }
+    } catch (IOException e) {
+      return false;
+    }
+
+    return true;
+  }
+
+  private static boolean addFile (File file, Map<File, JarFile> files, Function<File, JarFile> openJar) {
+    if (files.containsKey(file)) return true;
+    if (! file.isFile()) {
+      files.put(file, null);
+      return true;
+    }
+
+    JarFile jar = openJar.apply(file);
+    if (jar == null) return false;
+    files.put(file, jar);
+    return true;
+  }
+
+  private static JarFile openOrNull (File file) {
+    try { return new JarFile(file); } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private interface Location {
+    boolean contains (String path);
+  }
+
+  private final List<Location> locations = new CopyOnWriteArrayList<>();
+
+  /* the jar files on the class path of the JVM, kept open while the JVM runs as those of its class loaders */
+  private static final Map<File, JarFile> systemJars = new ConcurrentHashMap<>();
+}
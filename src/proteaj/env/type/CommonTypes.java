@@ -1,6 +1,7 @@
 package proteaj.env.type;
 
 import javassist.CtClass;
+import proteaj.env.CompilationContext;
 import proteaj.error.ErrorList;
 import proteaj.error.NotFoundError;
 import proteaj.error.Warning;
@@ -18,8 +19,7 @@ public class CommonTypes {
   public final CtClass typeType;
 
   public static CommonTypes getInstance() {
-    if (instance == null) instance = new CommonTypes();
-    return instance;
+    return CompilationContext.current().get(CommonTypes.class, CommonTypes::new);
   }
 
   private CommonTypes () {
@@ -49,6 +49,4 @@ public class CommonTypes {
     if (clazz == null) Warning.print(name + " is not found");
     return clazz;
   }
-
-  private static CommonTypes instance = null;
 }
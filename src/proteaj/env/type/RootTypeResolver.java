@@ -1,31 +1,41 @@
 package proteaj.env.type;
 
+import proteaj.env.CompilationContext;
+import proteaj.env.CompilerClassPool;
 import proteaj.error.*;
 
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarFile;
 import javassist.*;
 
-public class RootTypeResolver extends TypeResolver {
+public class RootTypeResolver extends TypeResolver implements Closeable {
 
   public CtClass makeClass (String name) {
     CtClass clazz = pool.makeClass(name);
+    addMadeClass(name);
     return clazz;
   }
 
   public CtClass makeClass (int modifiers, String name) {
     CtClass clazz = pool.makeClass(name);
     clazz.setModifiers(modifiers);
+    addMadeClass(name);
     return clazz;
   }
 
   public CtClass makeInterface (int modifiers, String name) {
     CtClass clazz = pool.makeInterface(name);
     clazz.setModifiers(clazz.getModifiers() | modifiers);
+    addMadeClass(name);
     return clazz;
   }
 
   public static RootTypeResolver getInstance() {
-    if (instance == null) instance = new RootTypeResolver();
-    return instance;
+    CompilationContext context = CompilationContext.current();
+    return context.get(RootTypeResolver.class, () -> new RootTypeResolver(context.pool));
   }
 
   protected CtClass searchType (String pack, String name) {
@@ -72,23 +82,147 @@ public class RootTypeResolver extends TypeResolver {
   }
 
   public void appendClassPath (String path) throws NotFoundError {
-    try { pool.appendPathList(path); } catch (NotFoundException e) {
+    try {
+      for (String entry : path.split(File.pathSeparator)) {
+        classPaths.add(pool.appendClassPath(entry));
+        entries.add(entry);
+        addToIndex(entry);
+      }
+    } catch (NotFoundException e) {
       throw new NotFoundError(e, "(command line args)");
     }
   }
 
+  /* the entries appended to the class path */
+  public List<String> getClassPath () {
+    return entries;
+  }
+
+  /* finds a file such as an operators file in the directories and the jar files appended to the class path,
+   * in the order they are appended, or returns null */
+  public URL findResource (String name) {
+    for (String entry : entries) try {
+      for (File file : getFiles(entry)) {
+        if (isJarFile(file.getPath())) {
+          JarFile jar = getJarFile(file);
+          if (jar != null && jar.getJarEntry(name) != null) return new URL("jar:" + file.toURI() + "!/" + name);
+        }
+        else {
+          File resource = new File(file, name);
+          if (resource.isFile()) return resource.toURI().toURL();
+        }
+      }
+    } catch (MalformedURLException e) {
+      assert false;
+      throw new RuntimeException(e);
+    }
+    return null;
+  }
+
+  /* the jar file opened once in a compilation, or null if it is not a jar file */
+  private synchronized JarFile getJarFile (File file) {
+    if (! jars.containsKey(file)) try {
+      jars.put(file, new JarFile(file));
+    } catch (IOException e) {
+      jars.put(file, null);
+    }
+    return jars.get(file);
+  }
+
+  /* closes the jar files opened in this compilation, on the appended class paths and on the class path of the client :
+   * see CompilationContext.close */
+  @Override
+  public void close () {
+    for (ClassPath classPath : classPaths) pool.removeClassPath(classPath);
+    classPaths.clear();
+
+    synchronized (this) {
+      for (JarFile jar : jars.values()) try {
+        if (jar != null) jar.close();
+      } catch (IOException e) {}
+      jars.clear();
+    }
+  }
+
+  /* the jar files and the directories of the entry, as the class pool reads it : see javassist.ClassPoolTail.
+   * an entry ending with "/*" is the jar files in the directory. */
+  private static List<File> getFiles (String entry) {
+    if (isJarFile(entry)) return Collections.singletonList(new File(entry));
+
+    int length = entry.length();
+    if (length > 2 && entry.charAt(length - 1) == '*' && (entry.charAt(length - 2) == '/' || entry.charAt(length - 2) == File.separatorChar)) {
+      List<File> jars = new ArrayList<>();
+      File[] files = new File(entry.substring(0, length - 2)).listFiles();
+      if (files != null) for (File file : files) {
+        if (isJarFile(file.getName())) jars.add(file);
+      }
+      return jars;
+    }
+
+    return Collections.singletonList(new File(entry));
+  }
+
+  private static boolean isJarFile (String path) {
+    String lower = path.toLowerCase();
+    return lower.endsWith(".jar") || lower.endsWith(".zip");
+  }
+
+  /* the index is given up if a jar file can't be opened, since the class pool may read it later */
+  private void addToIndex (String entry) {
+    for (File file : getFiles(entry)) {
+      ClassPathIndex index = this.index;
+      if (index == null) return;
+
+      if (! isJarFile(file.getPath())) index.addDirectory(file);
+      else {
+        JarFile jar = getJarFile(file);
+        if (jar != null) index.addJar(jar);
+        else this.index = null;
+      }
+    }
+  }
+
+  /* a class made in this compilation is looked up again, though a lookup of it may have failed before it was made */
+  private void addMadeClass (String name) {
+    madeClasses.add(name);
+    notFound.clear();
+  }
+
   private CtClass searchType_FullQualified(String name) {
-    CtClass clazz = pool.getOrNull(name);
+    CtClass clazz = getClassOrNull(name);
     if (clazz != null) return clazz;
 
     while (name.contains(".")) {
       int index = name.lastIndexOf(".");
       name = name.substring(0, index) + "$" + name.substring(index + 1);
-      clazz = pool.getOrNull(name);
+      clazz = getClassOrNull(name);
+      if (clazz != null) return clazz;
+    }
+
+    return getClassOrNull(name);
+  }
+
+  /* the class in the class pool, or null.
+   * the names not found are remembered, so each is searched once in a compilation,
+   * and the class path is not searched for a name not in its index, unless the class, or the class enclosing it, is made now. */
+  private CtClass getClassOrNull (String name) {
+    if (notFound.contains(name)) return null;
+
+    ClassPathIndex index = this.index;
+    if (index == null || index.contains(name) || isMadeClass(name)) {
+      CtClass clazz = pool.getOrNull(name);
       if (clazz != null) return clazz;
     }
 
-    return pool.getOrNull(name);
+    notFound.add(name);
+    return null;
+  }
+
+  private boolean isMadeClass (String name) {
+    if (madeClasses.contains(name)) return true;
+
+    int index = name.indexOf('$', 1);
+    return index > 0 && madeClasses.contains(name.substring(0, index));
   }
 
   @Override
@@ -96,13 +230,22 @@ public class RootTypeResolver extends TypeResolver {
     return new NotFoundError(name + " is not found", "(no source)", 0);
   }
 
-  private RootTypeResolver () {
-    this.pool = ClassPool.getDefault();
+  /* the class pool of a context searches the class path of its class loader and the entries appended here :
+   * see CompilationContext and CompileServer.newClassPool.
+   * the class path is not indexed if the pool does not tell its class loader, since the index may miss the classes it finds. */
+  private RootTypeResolver (ClassPool pool) {
+    this.pool = pool;
+    ClassLoader loader = pool instanceof CompilerClassPool ? ((CompilerClassPool)pool).getClassPathLoader() : null;
+    this.index = loader != null ? ClassPathIndex.of(loader, this::getJarFile) : null;
   }
 
   private final ClassPool pool;
-
-  private static RootTypeResolver instance = null;
+  private final List<ClassPath> classPaths = new ArrayList<>();
+  private final List<String> entries = new ArrayList<>();
+  private final Map<File, JarFile> jars = new HashMap<>();
+  private final Set<String> madeClasses = ConcurrentHashMap.newKeySet();
+  private final Set<String> notFound = ConcurrentHashMap.newKeySet();
+  private volatile ClassPathIndex index;
 
 
 
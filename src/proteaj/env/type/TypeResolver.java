@@ -39,13 +39,22 @@ public abstract class TypeResolver {
     return root().getArrayType(component, dim);
   }
 
-  protected CtClass getTypeNameOrNull (String name) {
+  protected synchronized CtClass getTypeNameOrNull (String name) {
     if (cache.containsKey(name)) return cache.get(name);
     CtClass clazz = getTypeNameOrNull_NonCached(name);
     cache.put(name, clazz);
     return clazz;
   }
 
+  /* the names of the classes found by this resolver : the classes a source file depends on */
+  public synchronized Set<String> getResolvedClassNames () {
+    Set<String> names = new TreeSet<>();
+    for (CtClass clazz : cache.values()) {
+      if (clazz != null && ! clazz.isPrimitive()) names.add(clazz.getName());
+    }
+    return names;
+  }
+
   protected abstract CtClass getTypeNameOrNull_NonCached (String name);
 
   protected abstract NotFoundError makeError (String name);
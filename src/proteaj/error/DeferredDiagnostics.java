@@ -0,0 +1,76 @@
+package proteaj.error;
+
+import proteaj.env.CompilationContext;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/* errors and warnings reported by a task running on a worker thread.
+ * they are kept aside and replayed later, so that the report does not depend on thread scheduling. */
+public class DeferredDiagnostics<T> {
+  public static <T> DeferredDiagnostics<T> run (Supplier<T> task) {
+    DeferredDiagnostics<T> diagnostics = new DeferredDiagnostics<>();
+    DeferredDiagnostics<?> outer = current.get();
+
+    current.set(diagnostics);
+    try { diagnostics.result = task.get(); }
+    finally { current.set(outer); }
+
+    return diagnostics;
+  }
+
+  /* runs the task on the executor in the context, and keeps its errors and warnings aside */
+  public static <T> CompletableFuture<DeferredDiagnostics<T>> runAsync (CompilationContext context, Supplier<T> task, Executor executor) {
+    return CompletableFuture.supplyAsync(() -> context.call(() -> run(task)), executor);
+  }
+
+  /* runs the tasks on jobs threads in the current context.
+   * returns their results in the order of the tasks, after reporting their errors and warnings in that order. */
+  public static <T> List<T> runAll (int jobs, Collection<? extends Supplier<T>> tasks) {
+    ForkJoinPool pool = new ForkJoinPool(jobs);
+    CompilationContext context = CompilationContext.current();
+
+    try {
+      List<CompletableFuture<DeferredDiagnostics<T>>> futures = new ArrayList<>();
+      for (Supplier<T> task : tasks) futures.add(runAsync(context, task, pool));
+      return replayAll(futures);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /* waits for the tasks, and reports their errors and warnings in the order of the tasks. returns their results in that order. */
+  public static <T> List<T> replayAll (Collection<? extends CompletableFuture<? extends DeferredDiagnostics<? extends T>>> tasks) {
+    List<T> results = new ArrayList<>();
+    for (CompletableFuture<? extends DeferredDiagnostics<? extends T>> task : tasks) results.add(task.join().replay());
+    return results;
+  }
+
+  /* reports the kept errors and warnings, then returns the result of the task */
+  public T replay () {
+    for (CompileError e : errors) ErrorList.addError(e);
+    for (String w : warnings) Warning.output(w);
+    return result;
+  }
+
+  public boolean hasDiagnostics () {
+    return ! errors.isEmpty() || ! warnings.isEmpty();
+  }
+
+  /* the result of the task, without reporting the errors and warnings */
+  public T getResult () {
+    return result;
+  }
+
+  static DeferredDiagnostics<?> current () {
+    return current.get();
+  }
+
+  final List<CompileError> errors = new ArrayList<>();
+  final List<String> warnings = new ArrayList<>();
+
+  private T result;
+
+  private static final ThreadLocal<DeferredDiagnostics<?>> current = new ThreadLocal<>();
+}
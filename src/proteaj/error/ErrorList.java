@@ -1,10 +1,12 @@
 package proteaj.error;
 
+import proteaj.env.CompilationContext;
+
 import java.util.*;
 
 public class ErrorList {
   public static void init() {
-    errors = new HashMap<String, List<CompileError>>();
+    instance().clear();
   }
 
   public static void addErrors (CompileErrors es) {
@@ -12,6 +14,31 @@ public class ErrorList {
   }
 
   public static void addError(CompileError e) {
+    DeferredDiagnostics<?> deferred = DeferredDiagnostics.current();
+    if (deferred != null) deferred.errors.add(e);
+    else instance().add(e);
+  }
+
+  public static boolean hasError() {
+    return ! instance().isEmpty();
+  }
+
+  public static void printAllErrors() {
+    instance().print();
+  }
+
+  /* the errors of the compilation running on the current thread */
+  private static ErrorList instance() {
+    return CompilationContext.current().get(ErrorList.class, ErrorList::new);
+  }
+
+  private ErrorList() {}
+
+  private synchronized void clear() {
+    errors.clear();
+  }
+
+  private synchronized void add(CompileError e) {
     String file = e.getFile();
 
     if(errors.containsKey(file)) {
@@ -24,11 +51,11 @@ public class ErrorList {
     }
   }
 
-  public static boolean hasError() {
-    return ! errors.isEmpty();
+  private synchronized boolean isEmpty() {
+    return errors.isEmpty();
   }
 
-  public static void printAllErrors() {
+  private synchronized void print() {
     int num = 0;
     List<Map.Entry<String, List<CompileError>>> es = new ArrayList<>(errors.entrySet());
     Collections.sort(es, (e1, e2) -> e1.getKey().compareTo(e2.getKey()));
@@ -49,7 +76,7 @@ public class ErrorList {
     System.err.println(num + " errors");
   }
 
-  private static Map<String, List<CompileError>> errors;
+  private final Map<String, List<CompileError>> errors = new HashMap<>();
 }
 
 enum CompileErrorComparator implements Comparator<CompileError> {
@@ -22,8 +22,8 @@ public class ForDebug {
     }
   }
 
-  public static void setVerboseFlag() {
-    verbose = true;
+  public static void setVerboseFlag(boolean flag) {
+    verbose = flag;
     msgs = new HashSet<>();
   }
 
@@ -2,11 +2,16 @@ package proteaj.error;
 
 public class Warning {
   public static void print(String msg) {
-    System.err.println("Warning: " + msg);
+    output("Warning: " + msg);
   }
 
   public static void print(String msg, String file, int line) {
-    System.err.println("** Warning ** " + msg + "\n  line " + line + " [ " + file + " ]");
+    output("** Warning ** " + msg + "\n  line " + line + " [ " + file + " ]");
   }
-}
 
+  static void output(String text) {
+    DeferredDiagnostics<?> deferred = DeferredDiagnostics.current();
+    if (deferred != null) deferred.warnings.add(text);
+    else System.err.println(text);
+  }
+}
@@ -0,0 +1,304 @@
+package proteaj.io;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import proteaj.error.*;
+import proteaj.ir.*;
+
+/* an operators file in the binary format, written by the compiler.
+ * a file on the file system is mapped to memory and read in place. the names of the types, the methods
+ * and the keywords are kept once in a table of strings, and the operators refer to them by their indexes.
+ * so each name is decoded once, and each type name is resolved once : see OperatorsModule.resolve.
+ *
+ *   file      : magic version strings name super operators
+ *   strings   : count offset* (length utf-8)*
+ *   operators : count (return method priority bounds pattern)*
+ *   bounds    : count name*
+ *   pattern   : modifier count id* count keyword* count operand* count and* count not*
+ *   operand   : type modifier separator default
+ *
+ * the numbers are big-endian ints. a name is the index of a string, or -1 for none.
+ * an offset of a string is relative to the start of the file. */
+public class BinaryOperatorsFile {
+  public BinaryOperatorsFile(IRSyntax irsyn) {
+    this(OperatorsModule.of(irsyn));
+  }
+
+  BinaryOperatorsFile(OperatorsModule module) {
+    this.name = module.name;
+    this.buffer = ByteBuffer.wrap(encode(module));
+  }
+
+  private BinaryOperatorsFile(String name, ByteBuffer buffer) {
+    this.name = name;
+    this.buffer = buffer;
+  }
+
+  /* reads the file found by OperatorsFileLoader.
+   * a file on the file system is mapped, and a file in a jar file is read into the heap, since it can't be mapped. */
+  static OperatorsModule decode(URL url, String fileName) throws FileIOError {
+    final ByteBuffer buffer;
+    if (url.getProtocol().equals("file")) try {
+      buffer = map(new File(url.toURI()), fileName);
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      throw new FileIOError("can't read file", fileName, 0);
+    }
+    else try (InputStream in = OperatorsFileLoader.openStream(url)) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] bytes = new byte[8192];
+      for (int n = in.read(bytes); n != -1; n = in.read(bytes)) out.write(bytes, 0, n);
+      buffer = ByteBuffer.wrap(out.toByteArray());
+    } catch (IOException e) {
+      throw new FileIOError("can't read file", fileName, 0);
+    }
+
+    return new BinaryOperatorsFile(null, buffer).decode(fileName);
+  }
+
+  /* reads the file of any operators module : see OperatorsConverter */
+  public static BinaryOperatorsFile open(File file) throws FileIOError {
+    BinaryOperatorsFile opsFile = new BinaryOperatorsFile(null, map(file, file.getPath()));
+    opsFile.name = opsFile.decode(file.getPath()).name;
+    return opsFile;
+  }
+
+  public void write() throws CompileError {
+    write(".");
+  }
+
+  public void write(String target) throws CompileError {
+    write(new File(ops2path(target, name)));
+  }
+
+  /* the file is written to a temporary file and renamed,
+   * so the compilations reading the operators module at the same time never read a part of it */
+  public void write(File file) throws CompileError {
+    Path path = file.toPath().toAbsolutePath();
+    try {
+      Path temp = Files.createTempFile(path.getParent(), "operators", ".tmp");
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.rewind();
+        while (bytes.hasRemaining()) channel.write(bytes);
+      }
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      String fileName = getOpsFileName(name);
+      throw new FileIOError("can't write file", fileName, 0);
+    }
+  }
+
+  public OperatorsFile toXML() throws FileIOError {
+    return new OperatorsFile(decode(getOpsFileName(name)));
+  }
+
+  private static ByteBuffer map(File file, String fileName) throws FileIOError {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException e) {
+      throw new FileIOError("can't read file", fileName, 0);
+    }
+  }
+
+  private static byte[] encode(OperatorsModule module) {
+    Map<String, Integer> indexes = new LinkedHashMap<>();
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    try (DataOutputStream out = new DataOutputStream(body)) {
+      out.writeInt(index(module.name, indexes));
+      out.writeInt(index(module.superName, indexes));
+
+      out.writeInt(module.operators.size());
+      for (OperatorsModule.Operator op : module.operators) {
+        out.writeInt(index(op.returnType, indexes));
+        out.writeInt(index(op.method, indexes));
+        out.writeInt(op.priority);
+
+        out.writeInt(op.bounds.size());
+        for (String bound : op.bounds) out.writeInt(index(bound, indexes));
+
+        OperatorsModule.Pattern p = op.pattern;
+        out.writeInt(p.modifier);
+        out.writeInt(p.ids.length);
+        for (int id : p.ids) out.writeInt(id);
+
+        out.writeInt(p.keywords.length);
+        for (String keyword : p.keywords) out.writeInt(index(keyword, indexes));
+
+        out.writeInt(p.operands.length);
+        for (OperatorsModule.Operand operand : p.operands) {
+          out.writeInt(index(operand.type, indexes));
+          out.writeInt(operand.modifier);
+          out.writeInt(index(operand.separator, indexes));
+          out.writeInt(index(operand.defaultMethod, indexes));
+        }
+
+        out.writeInt(p.andPreds.length);
+        for (String pred : p.andPreds) out.writeInt(index(pred, indexes));
+
+        out.writeInt(p.notPreds.length);
+        for (String pred : p.notPreds) out.writeInt(index(pred, indexes));
+      }
+    } catch (IOException e) {
+      assert false;
+      throw new RuntimeException(e);
+    }
+
+    List<byte[]> strings = new ArrayList<>();
+    for (String string : indexes.keySet()) strings.add(string.getBytes(StandardCharsets.UTF_8));
+
+    ByteArrayOutputStream file = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(file)) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+
+      out.writeInt(strings.size());
+      int offset = 12 + 4 * strings.size();
+      for (byte[] string : strings) {
+        out.writeInt(offset);
+        offset += 4 + string.length;
+      }
+      for (byte[] string : strings) {
+        out.writeInt(string.length);
+        out.write(string);
+      }
+
+      body.writeTo(out);
+    } catch (IOException e) {
+      assert false;
+      throw new RuntimeException(e);
+    }
+
+    return file.toByteArray();
+  }
+
+  private static int index(String string, Map<String, Integer> indexes) {
+    if (string == null) return -1;
+
+    Integer index = indexes.get(string);
+    if (index == null) indexes.put(string, index = indexes.size());
+    return index;
+  }
+
+  private OperatorsModule decode(String fileName) throws FileIOError {
+    try {
+      return new Decoder(buffer.duplicate()).decode();
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | ArithmeticException | CharacterCodingException e) {
+      throw new FileIOError(fileName + " is broken", fileName, 0);
+    }
+  }
+
+  /* reads the operators module from the buffer. the strings are decoded when they are first referred to. */
+  private static class Decoder {
+    Decoder(ByteBuffer buffer) {
+      this.buffer = buffer;
+      this.buffer.order(ByteOrder.BIG_ENDIAN).rewind();
+    }
+
+    OperatorsModule decode() throws CharacterCodingException {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) throw new IllegalArgumentException();
+
+      int count = getCount();
+      offsets = new int[count];
+      for (int i = 0; i < count; i++) offsets[i] = buffer.getInt();
+      strings = new String[count];
+      buffer.position(count == 0 ? buffer.position() : getEnd(count - 1));
+
+      String name = getString();
+      String superName = getString();
+      if (name == null) throw new IllegalArgumentException();
+
+      List<OperatorsModule.Operator> operators = new ArrayList<>();
+      for (int i = getCount(); i > 0; i--) {
+        String returnType = getString();
+        String method = getString();
+        int priority = buffer.getInt();
+
+        List<String> bounds = new ArrayList<>();
+        for (int j = getCount(); j > 0; j--) bounds.add(getString());
+
+        operators.add(new OperatorsModule.Operator(returnType, method, priority, bounds, getPattern()));
+        if (returnType == null || method == null || bounds.contains(null)) throw new IllegalArgumentException();
+      }
+
+      if (buffer.hasRemaining()) throw new IllegalArgumentException();
+      return new OperatorsModule(name, superName, operators);
+    }
+
+    private OperatorsModule.Pattern getPattern() throws CharacterCodingException {
+      int modifier = buffer.getInt();
+
+      int[] ids = new int[getCount()];
+      for (int i = 0; i < ids.length; i++) ids[i] = buffer.getInt();
+
+      String[] keywords = new String[getCount()];
+      for (int i = 0; i < keywords.length; i++) keywords[i] = getString();
+
+      OperatorsModule.Operand[] operands = new OperatorsModule.Operand[getCount()];
+      for (int i = 0; i < operands.length; i++) {
+        String type = getString();
+        int mod = buffer.getInt();
+        operands[i] = new OperatorsModule.Operand(type, mod, getString(), getString());
+      }
+
+      String[] andPreds = new String[getCount()];
+      for (int i = 0; i < andPreds.length; i++) andPreds[i] = getString();
+
+      String[] notPreds = new String[getCount()];
+      for (int i = 0; i < notPreds.length; i++) notPreds[i] = getString();
+
+      return new OperatorsModule.Pattern(modifier, ids, keywords, operands, andPreds, notPreds);
+    }
+
+    /* a count is at most the number of the remaining ints, so a broken count fails before a large array is made */
+    private int getCount() {
+      int count = buffer.getInt();
+      if (count < 0 || count > buffer.remaining() / 4) throw new IllegalArgumentException();
+      return count;
+    }
+
+    private String getString() throws CharacterCodingException {
+      int index = buffer.getInt();
+      if (index == -1) return null;
+
+      if (strings[index] == null) {
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.position(offsets[index] + 4).limit(getEnd(index));
+        strings[index] = StandardCharsets.UTF_8.newDecoder().decode(bytes).toString();
+      }
+      return strings[index];
+    }
+
+    private int getEnd(int index) {
+      int length = buffer.getInt(offsets[index]);
+      if (length < 0) throw new IllegalArgumentException();
+      return Math.addExact(offsets[index] + 4, length);
+    }
+
+    private final ByteBuffer buffer;
+    private int[] offsets;
+    private String[] strings;
+  }
+
+  public static String getOpsFileName(String name) {
+    return name.replace('.', '/') + ".pjops";
+  }
+
+  public static String ops2path(String directory, String name) {
+    if(directory.endsWith("/")) return directory + name.replace('.', '/') + ".pjops";
+    else return directory + '/' + name.replace('.', '/') + ".pjops";
+  }
+
+  private static final int MAGIC = 0x504a4f50;  // "PJOP"
+  private static final int VERSION = 1;
+
+  private String name;
+  private final ByteBuffer buffer;
+}
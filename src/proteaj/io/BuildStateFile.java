@@ -0,0 +1,169 @@
+package proteaj.io;
+
+import java.io.*;
+import java.util.*;
+
+import javax.xml.parsers.*;
+import javax.xml.transform.*;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.*;
+import org.xml.sax.SAXException;
+
+import proteaj.error.*;
+
+import static proteaj.util.XMLUtil.*;
+
+/* the state of the last build in a destination directory : see IncrementalBuild.
+ * it records, for each source file, the hashes of its content and its signature, its header,
+ * the classes and the operators modules declared in it, and the classes it depends on. */
+public class BuildStateFile {
+  /* options : the options the outputs depend on. the state of a build with other options is discarded. */
+  public static BuildStateFile load(File file, String options) {
+    BuildStateFile state = new BuildStateFile(options);
+    if(! file.isFile()) return state;
+
+    try {
+      DocumentBuilder docbuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+      Element root = docbuilder.parse(file).getDocumentElement();
+
+      if(! checkElementNode(root, "build") || ! getAttr(root, "options").equals(options)) return state;
+
+      NodeList nlist = root.getElementsByTagName("source");
+      for(int i = 0; i < nlist.getLength(); i++) {
+        Source source = readSource((Element)nlist.item(i));
+        state.sources.put(source.path, source);
+      }
+    } catch (ParserConfigurationException e) {
+      assert false;
+      throw new RuntimeException(e);
+    } catch (SAXException | IOException | FileIOError | NullPointerException | ClassCastException e) {
+      /* a broken state is discarded, and all the files are compiled */
+      state.sources.clear();
+    }
+
+    return state;
+  }
+
+  public void write(File file) throws FileIOError {
+    try {
+      Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+
+      Element root = doc.createElement("build");
+      root.setAttribute("options", options);
+      doc.appendChild(root);
+
+      for(Source source : sources.values()) root.appendChild(writeSource(doc, source));
+
+      file.getAbsoluteFile().getParentFile().mkdirs();
+      TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(file));
+    } catch (ParserConfigurationException | TransformerConfigurationException e) {
+      assert false;
+      throw new RuntimeException(e);
+    } catch (TransformerException e) {
+      throw new FileIOError("can't write file", file.getPath(), 0);
+    }
+  }
+
+  public Source getSource(String path) {
+    return sources.get(path);
+  }
+
+  public Collection<Source> getSources() {
+    return sources.values();
+  }
+
+  public void putSource(Source source) {
+    sources.put(source.path, source);
+  }
+
+  public static class Source {
+    public Source(String path, String hash, String signature, String packageName) {
+      this.path = path;
+      this.hash = hash;
+      this.signature = signature;
+      this.packageName = packageName;
+    }
+
+    /* the names of the classes and the operators modules declared in the file */
+    public Set<String> getExports() {
+      Set<String> exports = new TreeSet<>(classes);
+      exports.addAll(operators);
+      return exports;
+    }
+
+    /* the file is compiled again in the next build, since a file it depends on has been changed */
+    public void invalidate() {
+      hash = "";
+    }
+
+    public final String path;
+    public String hash;
+    public final String signature;
+    public final String packageName;
+
+    public final List<String> importPackages = new ArrayList<>();
+    public final List<String> importClasses = new ArrayList<>();
+    public final List<String> usingSyntax = new ArrayList<>();
+    public final Set<String> unusingSyntax = new TreeSet<>();
+
+    public final Set<String> classes = new TreeSet<>();
+    public final Set<String> operators = new TreeSet<>();
+    public final Set<String> dependencies = new TreeSet<>();
+  }
+
+  private static Source readSource(Element elem) {
+    Source source = new Source(getAttr(elem, "path"), getAttr(elem, "hash"), getAttr(elem, "signature"), getAttr(elem, "package"));
+
+    NodeList children = elem.getChildNodes();
+    for(int i = 0; i < children.getLength(); i++) {
+      Node node = children.item(i);
+      if(node.getNodeType() != Node.ELEMENT_NODE) continue;
+
+      String name = getAttr(node, "name");
+      switch(node.getNodeName()) {
+        case "import"     : (hasAttr(node, "class") ? source.importClasses : source.importPackages).add(name); break;
+        case "using"      : source.usingSyntax.add(name); break;
+        case "unusing"    : source.unusingSyntax.add(name); break;
+        case "class"      : source.classes.add(name); break;
+        case "operators"  : source.operators.add(name); break;
+        case "depends"    : source.dependencies.add(name); break;
+      }
+    }
+
+    return source;
+  }
+
+  private static Element writeSource(Document doc, Source source) {
+    Element elem = doc.createElement("source");
+    elem.setAttribute("path", source.path);
+    elem.setAttribute("hash", source.hash);
+    elem.setAttribute("signature", source.signature);
+    elem.setAttribute("package", source.packageName);
+
+    for(String name : source.importPackages) appendElement(doc, elem, "import", name);
+    for(String name : source.importClasses) appendElement(doc, elem, "import", name).setAttribute("class", "true");
+    for(String name : source.usingSyntax) appendElement(doc, elem, "using", name);
+    for(String name : source.unusingSyntax) appendElement(doc, elem, "unusing", name);
+    for(String name : source.classes) appendElement(doc, elem, "class", name);
+    for(String name : source.operators) appendElement(doc, elem, "operators", name);
+    for(String name : source.dependencies) appendElement(doc, elem, "depends", name);
+
+    return elem;
+  }
+
+  private static Element appendElement(Document doc, Element parent, String tag, String name) {
+    Element elem = doc.createElement(tag);
+    elem.setAttribute("name", name);
+    parent.appendChild(elem);
+    return elem;
+  }
+
+  private BuildStateFile(String options) {
+    this.options = options;
+  }
+
+  private final String options;
+  private final Map<String, Source> sources = new TreeMap<>();
+}
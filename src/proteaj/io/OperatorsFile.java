@@ -1,10 +1,8 @@
 package proteaj.io;
 
 import java.io.*;
-import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.*;
-import javassist.*;
 
 import javax.xml.parsers.*;
 import javax.xml.transform.*;
@@ -16,16 +14,20 @@ import org.xml.sax.SAXException;
 
 import proteaj.error.*;
 import proteaj.ir.*;
-import proteaj.env.type.TypeResolver;
 
 import static org.w3c.dom.Node.*;
 import static proteaj.ir.IRPattern.*;
-import static proteaj.util.XMLUtil.getAttr;
-import static proteaj.util.XMLUtil.hasAttr;
+import static proteaj.util.XMLUtil.*;
 
+/* an operators file in the XML format, written by the older compilers.
+ * it is read if no file in the binary format is found : see BinaryOperatorsFile and OperatorsFileLoader */
 public class OperatorsFile {
   public OperatorsFile(IRSyntax irsyn) {
-    name = irsyn.name;
+    this(OperatorsModule.of(irsyn));
+  }
+
+  OperatorsFile(OperatorsModule module) {
+    name = module.name;
 
     try {
       DocumentBuilderFactory dbfactory = DocumentBuilderFactory.newInstance();
@@ -34,26 +36,25 @@ public class OperatorsFile {
 
       Element root = doc.createElement("operators");
       root.setAttribute("name", name);
-      if(irsyn.hasBaseIRSyntax()) root.setAttribute("super", irsyn.getBaseIRSyntax().name);
+      if(module.superName != null) root.setAttribute("super", module.superName);
 
       doc.appendChild(root);
 
-      List<IROperator> irops = irsyn.getOperators();
-      for(int i = 0; i < irops.size(); i++) {
-        IROperator op = irops.get(i);
+      for(int i = 0; i < module.operators.size(); i++) {
+        OperatorsModule.Operator op = module.operators.get(i);
         Element operator = doc.createElement("operator");
         operator.setAttribute("id", String.valueOf(i));
-        operator.setAttribute("return", op.returnType.getName());
-        operator.setAttribute("method", op.getMethodName());
+        operator.setAttribute("return", op.returnType);
+        operator.setAttribute("method", op.method);
         operator.setAttribute("priority", String.valueOf(op.priority));
         root.appendChild(operator);
 
         Element bounds = doc.createElement("bounds");
-        bounds.setAttribute("length", String.valueOf(op.returnTypeBounds.size()));
+        bounds.setAttribute("length", String.valueOf(op.bounds.size()));
 
-        for (CtClass bound : op.returnTypeBounds) {
+        for (String bound : op.bounds) {
           Element e = doc.createElement("bound");
-          e.setTextContent(bound.getName());
+          e.setTextContent(bound);
           bounds.appendChild(e);
         }
 
@@ -68,33 +69,47 @@ public class OperatorsFile {
     }
   }
 
-  private OperatorsFile(String name, File file) throws FileIOError {
+  private OperatorsFile(String name, Document doc) {
     this.name = name;
-    if(file.isFile() && file.canRead()) try {
+    this.doc = doc;
+  }
+
+  /* reads the file found by OperatorsFileLoader, from a directory or a jar file alike */
+  static OperatorsModule decode(URL url, String fileName) throws FileIOError {
+    try (InputStream in = OperatorsFileLoader.openStream(url)) {
+      return new OperatorsFile(null, parse(in, fileName)).toModule(fileName);
+    } catch (IOException e) {
+      throw new FileIOError("can't read file", fileName, 0);
+    }
+  }
+
+  /* reads the file of any operators module : see OperatorsConverter */
+  public static OperatorsFile open(File file) throws FileIOError {
+    final OperatorsFile opsFile;
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      opsFile = new OperatorsFile(null, parse(in, file.getName()));
+    } catch (IOException e) {
+      throw new FileIOError("can't read file", file.getPath(), 0);
+    }
+
+    Element root = opsFile.doc.getDocumentElement();
+    if(! checkElementNode(root, "operators") || ! hasAttr(root, "name")) throw new FileIOError(file.getName() + " is broken", file.getPath(), 0);
+
+    opsFile.name = getAttr(root, "name");
+    return opsFile;
+  }
+
+  private static Document parse(InputStream in, String fileName) throws FileIOError, IOException {
+    try {
       DocumentBuilderFactory dbfactory = DocumentBuilderFactory.newInstance();
       DocumentBuilder docbuilder = dbfactory.newDocumentBuilder();
-      doc = docbuilder.parse(file);
+      return docbuilder.parse(in);
     } catch (ParserConfigurationException e) {
       assert false;
       throw new RuntimeException(e);
     } catch (SAXException e) {
-      throw new FileIOError(file.getName() + " is broken", file.getName(), 0);
-    } catch (IOException e) {
-      throw new FileIOError("can't read file", file.getName(), 0);
-    }
-  }
-
-  public static OperatorsFile loadOperatorsFile(String name) throws FileIOError {
-    String fileName = getOpsFileName(name);
-    URL url = Thread.currentThread().getContextClassLoader().getResource(fileName);
-    if(url != null) try {
-      File file = new File(url.toURI());
-      return new OperatorsFile(name, file);
-    } catch (URISyntaxException e) {
-      ErrorList.addError(new FileIOError(fileName + " is broken", fileName, 0));
+      throw new FileIOError(fileName + " is broken", fileName, 0);
     }
-
-    return null;
   }
 
   public void write() throws CompileError {
@@ -102,11 +117,14 @@ public class OperatorsFile {
   }
 
   public void write(String target) throws CompileError {
+    write(new File(ops2path(target, name)));
+  }
+
+  public void write(File file) throws CompileError {
     try {
       TransformerFactory tfactory = TransformerFactory.newInstance();
       Transformer transformer = tfactory.newTransformer();
 
-      File file = new File(ops2path(target, name));
       transformer.transform(new DOMSource(doc), new StreamResult(file));
     } catch (TransformerConfigurationException e) {
       assert false;
@@ -117,88 +135,63 @@ public class OperatorsFile {
     }
   }
 
-  public IRSyntax read (OperatorPool pool) throws FileIOError {
-    return read(TypeResolver.root(), pool);
+  public BinaryOperatorsFile toBinary() throws FileIOError {
+    return new BinaryOperatorsFile(toModule(getOpsFileName(name)));
   }
 
-  public IRSyntax read(TypeResolver resolver, OperatorPool pool) throws FileIOError {
-    CtClass clz = resolver.getTypeOrNull(name);
-    String fileName = getOpsFileName(name);
-
-    if(clz == null) return null;
-
-    Element root = doc.getDocumentElement();
-    checkElementNode(root, "operators");
-    if(! getAttr(root, "name").equals(name)) throw new FileIOError(fileName + " is broken", fileName, 0);
+  private OperatorsModule toModule(String fileName) throws FileIOError {
+    try {
+      Element root = doc.getDocumentElement();
+      if(! checkElementNode(root, "operators")) throw new FileIOError(fileName + " is broken", fileName, 0);
 
-    IRSyntax irsyn = new IRSyntax(clz, fileName);
+      NodeList nlist = root.getElementsByTagName("operator");
+      OperatorsModule.Operator[] operators = new OperatorsModule.Operator[nlist.getLength()];
 
-    if(hasAttr(root, "super")) {
-      irsyn.setBaseIRSyntax(pool.loadOperatorsFile(getAttr(root, "super")));
-    }
+      for(int i = 0; i < nlist.getLength(); i++) {
+        Node node = nlist.item(i);
+        if(! checkElementNode(node, "operator")) throw new FileIOError(fileName + " is broken", fileName, 0);
 
-    NodeList nlist = root.getElementsByTagName("operator");
-    IROperator[] irops = new IROperator[nlist.getLength()];
+        int id = Integer.parseInt(getAttr(node, "id"));
+        if(id < 0 || id >= nlist.getLength() || operators[id] != null) throw new FileIOError(fileName + " is broken", fileName, 0);
 
-    for(int i = 0; i < nlist.getLength(); i++) try {
-      Node node = nlist.item(i);
-      checkElementNode(node, "operator");
+        String methodName = getAttr(node, "method");
+        int priority = Integer.parseInt(getAttr(node, "priority"));
+        String returnType = getAttr(node, "return");
 
-      int id = Integer.parseInt(getAttr(node, "id"));
-      if(id < 0 || id >= nlist.getLength()) throw new FileIOError(fileName + " is broken", fileName, 0);
+        NodeList nodeList = node.getChildNodes();
+        Node node0 = nodeList.item(0);
+        Node node1 = nodeList.item(1);
 
-      String methodName = getAttr(node, "method");
-      int priority = Integer.parseInt(getAttr(node, "priority"));
-      CtClass returnType = resolver.getType(getAttr(node, "return"));
+        final Node bounds;
+        final Node ptNode;
+        if (node0.getNodeName().equals("bounds") && node1.getNodeName().equals("pattern")) {
+          bounds = node0;
+          ptNode = node1;
+        }
+        else if (node1.getNodeName().equals("bounds") && node0.getNodeName().equals("pattern")) {
+          bounds = node1;
+          ptNode = node0;
+        }
+        else throw new FileIOError(fileName + " is broken", fileName, 0);
 
-      NodeList nodeList = node.getChildNodes();
-      Node node0 = nodeList.item(0);
-      Node node1 = nodeList.item(1);
+        int boundsLen = Integer.valueOf(getAttr(bounds, "length"));
+        NodeList boundsList = bounds.getChildNodes();
+        List<String> returnTypeBounds = new ArrayList<>();
+        for (int j = 0; j < boundsLen; j++) {
+          returnTypeBounds.add(boundsList.item(j).getTextContent());
+        }
 
-      final Node bounds;
-      final Node ptNode;
-      if (node0.getNodeName().equals("bounds") && node1.getNodeName().equals("pattern")) {
-        bounds = node0;
-        ptNode = node1;
-      }
-      else if (node1.getNodeName().equals("bounds") && node0.getNodeName().equals("pattern")) {
-        bounds = node1;
-        ptNode = node0;
+        operators[id] = new OperatorsModule.Operator(returnType, methodName, priority, returnTypeBounds, fromXML(ptNode, fileName));
       }
-      else throw new FileIOError(fileName + " is broken", fileName, 0);
-
-      int boundsLen = Integer.valueOf(getAttr(bounds, "length"));
-      NodeList boundsList = bounds.getChildNodes();
-      List<CtClass> returnTypeBounds = new ArrayList<>();
-      for (int j = 0; j < boundsLen; j++) {
-        CtClass bound = resolver.getType(boundsList.item(j).getTextContent());
-        returnTypeBounds.add(bound);
-      }
-
-      IRPattern irpat = fromXML(ptNode, clz, resolver, fileName);
-
-      CtMethod method = clz.getDeclaredMethod(methodName);
 
-      IROperator irop = new IROperator(returnType, returnTypeBounds, irpat, priority, clz, method);
-      irops[id] = irop;
-
-    } catch (NotFoundException e) {
-      return null;
-    } catch (NotFoundError e) {
-      return null;
-    } catch (FileIOError e) {
-      ErrorList.addError(e);
-    }
-
-    for(IROperator irop : irops) {
-      if(irop == null) throw new FileIOError(fileName + " is broken", fileName, 0);
-      irsyn.addOperator(irop);
+      String superName = hasAttr(root, "super") ? getAttr(root, "super") : null;
+      return new OperatorsModule(getAttr(root, "name"), superName, Arrays.asList(operators));
+    } catch (NullPointerException | NumberFormatException | ArrayIndexOutOfBoundsException e) {
+      throw new FileIOError(fileName + " is broken", fileName, 0);
     }
-
-    return irsyn;
   }
 
-  public IRPattern fromXML(Node ptnode, CtClass clz, TypeResolver resolver, String fileName) throws FileIOError, NotFoundError {
+  private OperatorsModule.Pattern fromXML(Node ptnode, String fileName) throws FileIOError {
     int modifier = Integer.parseInt(getAttr(ptnode, "modifier"));
     int patlength = Integer.parseInt(getAttr(ptnode, "length"));
     int operatorsLength = Integer.parseInt(getAttr(ptnode, "operators"));
@@ -210,15 +203,14 @@ public class OperatorsFile {
     if(ptlist.getLength() != patlength) throw new FileIOError(fileName + " is broken", fileName, 0);
 
     int[] patternIds = new int[patlength];
-    CtClass[] operandTypes = new CtClass[operandsLength];
-    IROperandAttribute[] operandMods = new IROperandAttribute[operandsLength];
+    OperatorsModule.Operand[] operands = new OperatorsModule.Operand[operandsLength];
     String[] keywords = new String[operatorsLength];
-    CtClass[] andpreds = new CtClass[andPredsLength];
-    CtClass[] notpreds = new CtClass[notPredsLength];
+    String[] andpreds = new String[andPredsLength];
+    String[] notpreds = new String[notPredsLength];
 
-    for(int j = 0; j < patlength; j++) try {
+    for(int j = 0; j < patlength; j++) {
       Node elem = ptlist.item(j);
-      checkNodeType(elem, ELEMENT_NODE);
+      if(! checkNodeType(elem, ELEMENT_NODE)) throw new FileIOError(fileName + " is broken", fileName, 0);
 
       int index = Integer.parseInt(getAttr(elem, "index"));
       int id = Integer.parseInt(getAttr(elem, "id"));
@@ -227,89 +219,77 @@ public class OperatorsFile {
 
       if(elem.getNodeName().equals("keyword")) {
         id &= ~PATTERN_OPERATOR;
-        String keyword = getAttr(elem, "name");
-        keywords[id] = keyword;
+        keywords[id] = getAttr(elem, "name");
       }
       else if(elem.getNodeName().equals("operand")) {
         id &= ~PATTERN_OPERAND;
 
-        CtClass type = resolver.getType(getAttr(elem, "type"));
-        operandTypes[id] = type;
-
+        String type = getAttr(elem, "type");
         int mod = Integer.parseInt(getAttr(elem, "modifier"));
+        String separator = hasAttr(elem, "separator") ? getAttr(elem, "separator") : null;
+        String defaultMethod = hasAttr(elem, "default") ? getAttr(elem, "default") : null;
 
-        if(hasAttr(elem, "separator")) {
-          operandMods[id] = new IROperandAttribute(mod, getAttr(elem, "separator"));
-        }
-        else {
-          operandMods[id] = new IROperandAttribute(mod);
-        }
-
-        if(hasAttr(elem, "default")) {
-          operandMods[id].setDefaultMethod(clz.getDeclaredMethod(getAttr(elem, "default")));
-        }
+        operands[id] = new OperatorsModule.Operand(type, mod, separator, defaultMethod);
       }
       else if(elem.getNodeName().equals("and")) {
         id &= ~PATTERN_ANDPRED;
-        CtClass type = resolver.getType(getAttr(elem, "type"));
-        andpreds[id] = type;
+        andpreds[id] = getAttr(elem, "type");
       }
       else if(elem.getNodeName().equals("not")) {
         id &= ~PATTERN_NOTPRED;
-        CtClass type = resolver.getType(getAttr(elem, "type"));
-        notpreds[id] = type;
+        notpreds[id] = getAttr(elem, "type");
       }
-    } catch (NotFoundException e) {
-      throw new NotFoundError(e, fileName, 0);
     }
 
-    return new IRPattern(modifier, patternIds, operandTypes, operandMods, keywords, andpreds, notpreds);
+    return new OperatorsModule.Pattern(modifier, patternIds, keywords, operands, andpreds, notpreds);
   }
 
-  public Element toXML(IRPattern p) {
-    int patlength = p.getPatternLength();
+  private Element toXML(OperatorsModule.Pattern p) {
+    int patlength = p.ids.length;
     Element pattern = doc.createElement("pattern");
-    pattern.setAttribute("modifier", String.valueOf(p.getModifier()));
+    pattern.setAttribute("modifier", String.valueOf(p.modifier));
     pattern.setAttribute("length", String.valueOf(patlength));
-    pattern.setAttribute("operators", String.valueOf(p.getOperatorsLength()));
-    pattern.setAttribute("operands", String.valueOf(p.getOperandsLength()));
-    pattern.setAttribute("andpreds", String.valueOf(p.getAndPredicatesLength()));
-    pattern.setAttribute("notpreds", String.valueOf(p.getNotPredicatesLength()));
+    pattern.setAttribute("operators", String.valueOf(p.keywords.length));
+    pattern.setAttribute("operands", String.valueOf(p.operands.length));
+    pattern.setAttribute("andpreds", String.valueOf(p.andPreds.length));
+    pattern.setAttribute("notpreds", String.valueOf(p.notPreds.length));
 
     for(int i = 0; i < patlength; i++) {
-      if(p.isOperator(i)) {
+      int id = p.ids[i];
+      if((id & PATTERN_OPERATOR) == PATTERN_OPERATOR) {
         Element keyword = doc.createElement("keyword");
         keyword.setAttribute("index", String.valueOf(i));
-        keyword.setAttribute("id", String.valueOf(p.getPatternId(i)));
-        keyword.setAttribute("name", p.getOperatorKeyword(i));
+        keyword.setAttribute("id", String.valueOf(id));
+        keyword.setAttribute("name", p.keywords[id & ~PATTERN_OPERATOR]);
         pattern.appendChild(keyword);
       }
-      else if(p.isOperand(i)) {
+      else if((id & PATTERN_OPERAND) == PATTERN_OPERAND) {
+        OperatorsModule.Operand op = p.operands[id & ~PATTERN_OPERAND];
         Element operand = doc.createElement("operand");
         operand.setAttribute("index", String.valueOf(i));
-        operand.setAttribute("id", String.valueOf(p.getPatternId(i)));
-        operand.setAttribute("type", p.getOperandType(i).getName());
-        operand.setAttribute("modifier", String.valueOf(p.getOperandModifier(i).getModifier()));
-        if(p.getOperandModifier(i).hasSeparator()) {
-          operand.setAttribute("separator", p.getOperandModifier(i).getSeparator());
+        operand.setAttribute("id", String.valueOf(id));
+        operand.setAttribute("type", op.type);
+        operand.setAttribute("modifier", String.valueOf(op.modifier));
+        if(op.separator != null) {
+          operand.setAttribute("separator", op.separator);
         }
-        if(p.isOptionOperand(i)) {
-          operand.setAttribute("default", p.getDefaultMethod(i).getName());
+        if(op.defaultMethod != null) {
+          operand.setAttribute("default", op.defaultMethod);
         }
         pattern.appendChild(operand);
       }
-      else if(p.isAndPredicate(i)) {
+      else if((id & PATTERN_ANDPRED) == PATTERN_ANDPRED) {
         Element pred = doc.createElement("and");
         pred.setAttribute("index", String.valueOf(i));
-        pred.setAttribute("id", String.valueOf(p.getPatternId(i)));
-        pred.setAttribute("type", p.getAndPredicateType(i).getName());
+        pred.setAttribute("id", String.valueOf(id));
+        pred.setAttribute("type", p.andPreds[id & ~PATTERN_ANDPRED]);
         pattern.appendChild(pred);
       }
-      else if(p.isNotPredicate(i)) {
+      else if((id & PATTERN_NOTPRED) == PATTERN_NOTPRED) {
         Element pred = doc.createElement("not");
         pred.setAttribute("index", String.valueOf(i));
-        pred.setAttribute("id", String.valueOf(p.getPatternId(i)));
-        pred.setAttribute("type", p.getNotPredicateType(i).getName());
+        pred.setAttribute("id", String.valueOf(id));
+        pred.setAttribute("type", p.notPreds[id & ~PATTERN_NOTPRED]);
         pattern.appendChild(pred);
       }
     }
@@ -317,21 +297,6 @@ public class OperatorsFile {
     return pattern;
   }
 
-  private void checkElementNode(Node node, String name) throws FileIOError {
-    checkNodeType(node, ELEMENT_NODE);
-    if(! node.getNodeName().equals(name)) {
-      String fileName = getOpsFileName(name);
-      throw new FileIOError(fileName + " is broken", fileName, 0);
-    }
-  }
-
-  private void checkNodeType(Node node, short type) throws FileIOError {
-    if(node.getNodeType() != type) {
-      String fileName = getOpsFileName(name);
-      throw new FileIOError(fileName + " is broken", fileName, 0);
-    }
-  }
-
   public static String getOpsFileName(String name) {
     return name.replace('.', '/') + ".ops";
   }
@@ -0,0 +1,102 @@
+package proteaj.io;
+
+import java.io.*;
+import java.net.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import proteaj.error.*;
+import proteaj.ir.*;
+import proteaj.env.type.TypeResolver;
+
+/* finds and reads the operators files of the modules used by a compilation.
+ * a file is looked up on the class path of the compiler, and then on the class path given by -cp,
+ * each of which may be a directory or a jar file : see RootTypeResolver.findResource.
+ * a file in the binary format is preferred to one in the XML format.
+ *
+ * the decoded modules are kept across the compilations in this JVM, such as those of the compile server,
+ * and a module is decoded again only if its file, or the jar file containing it, is changed.
+ * the names in a module are resolved in each compilation, since the classes belong to the class pool of the compilation. */
+public class OperatorsFileLoader {
+  /* the operators module of the name, or null if neither its file nor its class is found */
+  public static IRSyntax load (String name, OperatorPool pool) throws FileIOError {
+    TypeResolver resolver = TypeResolver.root();
+
+    boolean binary = true;
+    String fileName = BinaryOperatorsFile.getOpsFileName(name);
+    URL url = findResource(fileName);
+
+    if (url == null) {
+      binary = false;
+      fileName = OperatorsFile.getOpsFileName(name);
+      url = findResource(fileName);
+      if (url == null) return null;
+    }
+
+    if (resolver.getTypeOrNull(name) == null) return null;
+    return getModule(url, fileName, binary).resolve(name, resolver, pool, fileName);
+  }
+
+  /* opens the file without the cache of the jar files in the JVM,
+   * so a jar file is not kept open, and a jar file replaced after it is read is read again */
+  static InputStream openStream (URL url) throws IOException {
+    URLConnection connection = url.openConnection();
+    connection.setUseCaches(false);
+    return new BufferedInputStream(connection.getInputStream());
+  }
+
+  private static URL findResource (String fileName) {
+    URL url = Thread.currentThread().getContextClassLoader().getResource(fileName);
+    if (url != null) return url;
+
+    /* the class path given by -cp, which may not be on the class path of the compiler */
+    return TypeResolver.root().findResource(fileName);
+  }
+
+  private static OperatorsModule getModule (URL url, String fileName, boolean binary) throws FileIOError {
+    String key = url.toString();
+    List<Object> stamp = getStamp(url);
+
+    if (stamp != null) {
+      CachedModule cached = modules.get(key);
+      if (cached != null && cached.stamp.equals(stamp)) return cached.module;
+    }
+
+    /* the stamp is taken before the file is read, so a file changed meanwhile is read again next time */
+    OperatorsModule module = binary ? BinaryOperatorsFile.decode(url, fileName) : OperatorsFile.decode(url, fileName);
+    if (stamp != null) modules.put(key, new CachedModule(stamp, module));
+    return module;
+  }
+
+  /* the last modified time, the size and the identity of the file, or of the jar file containing it.
+   * the identity changes when the file is replaced, as the compiler does : see BinaryOperatorsFile.write.
+   * returns null if the file is not on the file system, and then the module is not kept. */
+  private static List<Object> getStamp (URL url) {
+    try {
+      final Path path;
+      if (url.getProtocol().equals("file")) path = Paths.get(url.toURI());
+      else if (url.getProtocol().equals("jar")) path = Paths.get(((JarURLConnection)url.openConnection()).getJarFileURL().toURI());
+      else return null;
+
+      BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+      return Arrays.asList(attrs.lastModifiedTime(), attrs.size(), attrs.fileKey());
+    } catch (IOException | URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+      return null;
+    }
+  }
+
+  private static class CachedModule {
+    CachedModule(List<Object> stamp, OperatorsModule module) {
+      this.stamp = stamp;
+      this.module = module;
+    }
+
+    final List<Object> stamp;
+    final OperatorsModule module;
+  }
+
+  /* the decoded modules keyed by the location of their files. a module is replaced when its file is changed. */
+  private static final Map<String, CachedModule> modules = new ConcurrentHashMap<>();
+}
@@ -0,0 +1,191 @@
+package proteaj.io;
+
+import java.util.*;
+import javassist.*;
+
+import proteaj.error.*;
+import proteaj.ir.*;
+import proteaj.env.type.TypeResolver;
+
+import static proteaj.ir.IRPattern.*;
+
+/* the content of an operators file, with the names of the types and the methods not resolved.
+ * it is read from and written to the binary format of BinaryOperatorsFile and the XML format of OperatorsFile,
+ * so a file is converted between the formats without the class path. */
+class OperatorsModule {
+  OperatorsModule(String name, String superName, List<Operator> operators) {
+    this.name = name;
+    this.superName = superName;
+    this.operators = operators;
+  }
+
+  static OperatorsModule of (IRSyntax irsyn) {
+    List<Operator> operators = new ArrayList<>();
+    for (IROperator op : irsyn.getOperators()) {
+      List<String> bounds = new ArrayList<>();
+      for (CtClass bound : op.returnTypeBounds) bounds.add(bound.getName());
+      operators.add(new Operator(op.returnType.getName(), op.getMethodName(), op.priority, bounds, Pattern.of(op.pattern)));
+    }
+    return new OperatorsModule(irsyn.name, irsyn.hasBaseIRSyntax() ? irsyn.getBaseIRSyntax().name : null, operators);
+  }
+
+  /* resolves the names of the operators module of the name.
+   * returns null if the class of the module, or a type or a method of an operator is not found.
+   * each type name is resolved once, since the same types appear in many operators. */
+  IRSyntax resolve (String name, TypeResolver resolver, OperatorPool pool, String fileName) throws FileIOError {
+    CtClass clz = resolver.getTypeOrNull(name);
+    if (clz == null) return null;
+
+    if (! this.name.equals(name)) throw new FileIOError(fileName + " is broken", fileName, 0);
+
+    IRSyntax irsyn = new IRSyntax(clz, fileName);
+    if (superName != null) irsyn.setBaseIRSyntax(pool.loadOperatorsFile(superName));
+
+    Map<String, CtClass> types = new HashMap<>();
+    try {
+      for (Operator op : operators) {
+        if (! op.pattern.isValid()) throw new FileIOError(fileName + " is broken", fileName, 0);
+
+        CtClass returnType = getType(op.returnType, resolver, types);
+        List<CtClass> returnTypeBounds = new ArrayList<>();
+        for (String bound : op.bounds) returnTypeBounds.add(getType(bound, resolver, types));
+
+        IRPattern irpat = op.pattern.resolve(clz, resolver, types);
+        CtMethod method = clz.getDeclaredMethod(op.method);
+
+        irsyn.addOperator(new IROperator(returnType, returnTypeBounds, irpat, op.priority, clz, method));
+      }
+    } catch (NotFoundException | NotFoundError e) {
+      return null;
+    }
+
+    return irsyn;
+  }
+
+  private static CtClass getType (String name, TypeResolver resolver, Map<String, CtClass> types) throws NotFoundError {
+    CtClass type = types.get(name);
+    if (type == null) types.put(name, type = resolver.getType(name));
+    return type;
+  }
+
+  static class Operator {
+    Operator(String returnType, String method, int priority, List<String> bounds, Pattern pattern) {
+      this.returnType = returnType;
+      this.method = method;
+      this.priority = priority;
+      this.bounds = bounds;
+      this.pattern = pattern;
+    }
+
+    final String returnType;
+    final String method;
+    final int priority;
+    final List<String> bounds;
+    final Pattern pattern;
+  }
+
+  /* the pattern of an operator : see IRPattern. the elements of each kind are kept in the order of their ids. */
+  static class Pattern {
+    Pattern(int modifier, int[] ids, String[] keywords, Operand[] operands, String[] andPreds, String[] notPreds) {
+      this.modifier = modifier;
+      this.ids = ids;
+      this.keywords = keywords;
+      this.operands = operands;
+      this.andPreds = andPreds;
+      this.notPreds = notPreds;
+    }
+
+    static Pattern of (IRPattern p) {
+      int[] ids = new int[p.getPatternLength()];
+      String[] keywords = new String[p.getOperatorsLength()];
+      Operand[] operands = new Operand[p.getOperandsLength()];
+      String[] andPreds = new String[p.getAndPredicatesLength()];
+      String[] notPreds = new String[p.getNotPredicatesLength()];
+
+      for (int i = 0; i < ids.length; i++) {
+        int id = ids[i] = p.getPatternId(i);
+
+        if (p.isOperator(i)) keywords[id & ~PATTERN_OPERATOR] = p.getOperatorKeyword(i);
+        else if (p.isOperand(i)) {
+          IROperandAttribute mod = p.getOperandModifier(i);
+          String defaultMethod = p.isOptionOperand(i) ? p.getDefaultMethod(i).getName() : null;
+          operands[id & ~PATTERN_OPERAND] = new Operand(p.getOperandType(i).getName(), mod.getModifier(), mod.getSeparator(), defaultMethod);
+        }
+        else if (p.isAndPredicate(i)) andPreds[id & ~PATTERN_ANDPRED] = p.getAndPredicateType(i).getName();
+        else if (p.isNotPredicate(i)) notPreds[id & ~PATTERN_NOTPRED] = p.getNotPredicateType(i).getName();
+      }
+
+      return new Pattern(p.getModifier(), ids, keywords, operands, andPreds, notPreds);
+    }
+
+    /* each id refers to an element of its kind, and each element is given */
+    boolean isValid () {
+      for (int id : ids) {
+        if ((id & PATTERN_OPERATOR) != 0) { if (! isIndex(id & ~PATTERN_OPERATOR, keywords)) return false; }
+        else if ((id & PATTERN_OPERAND) != 0) { if (! isIndex(id & ~PATTERN_OPERAND, operands)) return false; }
+        else if ((id & PATTERN_ANDPRED) != 0) { if (! isIndex(id & ~PATTERN_ANDPRED, andPreds)) return false; }
+        else if ((id & PATTERN_NOTPRED) != 0) { if (! isIndex(id & ~PATTERN_NOTPRED, notPreds)) return false; }
+        else return false;
+      }
+
+      for (Object[] elements : Arrays.asList(keywords, operands, andPreds, notPreds)) {
+        for (Object element : elements) if (element == null) return false;
+      }
+      for (Operand operand : operands) if (operand.type == null) return false;
+
+      return true;
+    }
+
+    private IRPattern resolve (CtClass clz, TypeResolver resolver, Map<String, CtClass> types) throws NotFoundException, NotFoundError {
+      CtClass[] operandTypes = new CtClass[operands.length];
+      IROperandAttribute[] operandMods = new IROperandAttribute[operands.length];
+
+      for (int i = 0; i < operands.length; i++) {
+        Operand operand = operands[i];
+        operandTypes[i] = getType(operand.type, resolver, types);
+
+        if (operand.separator != null) operandMods[i] = new IROperandAttribute(operand.modifier, operand.separator);
+        else operandMods[i] = new IROperandAttribute(operand.modifier);
+
+        if (operand.defaultMethod != null) operandMods[i].setDefaultMethod(clz.getDeclaredMethod(operand.defaultMethod));
+      }
+
+      CtClass[] andPredTypes = new CtClass[andPreds.length];
+      for (int i = 0; i < andPreds.length; i++) andPredTypes[i] = getType(andPreds[i], resolver, types);
+
+      CtClass[] notPredTypes = new CtClass[notPreds.length];
+      for (int i = 0; i < notPreds.length; i++) notPredTypes[i] = getType(notPreds[i], resolver, types);
+
+      return new IRPattern(modifier, ids.clone(), operandTypes, operandMods, keywords.clone(), andPredTypes, notPredTypes);
+    }
+
+    private static boolean isIndex (int index, Object[] elements) {
+      return 0 <= index && index < elements.length;
+    }
+
+    final int modifier;
+    final int[] ids;
+    final String[] keywords;
+    final Operand[] operands;
+    final String[] andPreds;
+    final String[] notPreds;
+  }
+
+  static class Operand {
+    Operand(String type, int modifier, String separator, String defaultMethod) {
+      this.type = type;
+      this.modifier = modifier;
+      this.separator = separator;
+      this.defaultMethod = defaultMethod;
+    }
+
+    final String type;
+    final int modifier;
+    final String separator;
+    final String defaultMethod;
+  }
+
+  final String name;
+  final String superName;
+  final List<Operator> operators;
+}
@@ -6,11 +6,16 @@ import java.io.*;
 
 public class SourceFileReader {
   public SourceFileReader(File file) throws FileIOError {
+    this(file, file.getPath());
+  }
+
+  /* reads the file, and reports it as filePath */
+  public SourceFileReader(File file, String filePath) throws FileIOError {
+    this.filePath = filePath;
     try {
       reader = new BufferedReader(new FileReader(file));
-      c = reader.read();
+      c = read();
       line = 1;
-      filePath = file.getPath();
     } catch (IOException e) {
       throw new FileIOError("can't read source file", filePath, 0);
     }
@@ -35,7 +40,7 @@ public class SourceFileReader {
   public char next() throws FileIOError {
     try {
       char ret = (char)c;
-      c = reader.read();
+      c = read();
       if(ret == '\n') line++;
       return ret;
     } catch (IOException e) {
@@ -49,6 +54,18 @@ public class SourceFileReader {
     }
   }
 
+  /* the file is closed at its end, since the reader is dropped without closing */
+  private int read() throws IOException {
+    if (reader == null) return -1;
+
+    int c = reader.read();
+    if (c == -1) {
+      reader.close();
+      reader = null;
+    }
+    return c;
+  }
+
   private int c;
   private int line;
   private String filePath;
@@ -62,6 +62,55 @@ public class IROperator {
     return buf.toString();
   }
 
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder(getName(returnType)).append(" :");
+
+    if(pattern.isDummy()) buf.append(" readas");
+    else for(int i = 0; i < pattern.getPatternLength(); i++) {
+      if(pattern.isOperator(i)) buf.append(' ').append(pattern.getOperatorKeyword(i));
+      else if(pattern.isOperand(i)) buf.append(" <").append(getName(pattern.getOperandType(i))).append('>');
+      else if(pattern.isAndPredicate(i)) buf.append(" &").append(getName(pattern.getAndPredicateType(i)));
+      else if(pattern.isNotPredicate(i)) buf.append(" !").append(getName(pattern.getNotPredicateType(i)));
+    }
+
+    if(actualMethod != null) buf.append(" : ").append(getClassName()).append('.').append(getMethodName());
+    return buf.toString();
+  }
+
+  /* the return type, the pattern, the priority and the method of this operator : see AvailableOperators.describe */
+  public String describe() {
+    StringBuilder buf = new StringBuilder();
+
+    buf.append(getName(returnType));
+    for(CtClass bound : returnTypeBounds) buf.append(" to ").append(getName(bound));
+    buf.append(" : ").append(pattern.getModifier()).append(" :");
+
+    /* the types of the operands are null if they are not found */
+    for(int i = 0; i < pattern.getPatternLength(); i++) {
+      if(pattern.isOperator(i)) buf.append(' ').append(pattern.getOperatorKeyword(i));
+      else if(pattern.isAndPredicate(i)) buf.append(" &").append(getName(pattern.getAndPredicateType(i)));
+      else if(pattern.isNotPredicate(i)) buf.append(" !").append(getName(pattern.getNotPredicateType(i)));
+      else if(pattern.isOperand(i)) {
+        IROperandAttribute attribute = pattern.getOperandModifier(i);
+        buf.append(" <").append(getName(pattern.getOperandType(i))).append(' ').append(attribute.getModifier());
+        if(attribute.hasSeparator()) buf.append(" \"").append(attribute.getSeparator()).append('"');
+        if(attribute.isOption()) buf.append(" = ").append(attribute.getDefaultMethod().getName());
+        buf.append('>');
+      }
+    }
+
+    buf.append(" : ").append(priority);
+
+    if(actualMethod != null) buf.append(" : ").append(getClassName()).append('.').append(getMethodName()).append(actualMethod.getSignature());
+
+    return buf.toString();
+  }
+
+  private static String getName(CtClass clazz) {
+    return clazz != null ? clazz.getName() : "null";
+  }
+
   public final int priority;
   public final CtClass returnType;
   public final List<CtClass> returnTypeBounds;
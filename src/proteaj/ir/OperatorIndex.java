@@ -0,0 +1,122 @@
+package proteaj.ir;
+
+import java.util.*;
+
+import javassist.*;
+
+/* the operators of an operators module indexed by the types they are available for.
+ * an operator returning a reference type is available for the type and all its super types up to its bounds,
+ * so the super types are walked once here instead of for each file using the module : see AvailableOperators.
+ * the priorities are those written in the module. the index is not changed once it is made. */
+public class OperatorIndex {
+  OperatorIndex(IRSyntax syntax) {
+    Map<CtClass, NavigableMap<Integer, List<IROperator>>> normal = new LinkedHashMap<>();
+    Map<CtClass, NavigableMap<Integer, List<IROperator>>> readAs = new LinkedHashMap<>();
+    Set<String> keywords = new LinkedHashSet<>();
+    List<NotFoundException> errors = new ArrayList<>();
+    int maxPriority = Integer.MIN_VALUE;
+
+    for (IROperator operator : syntax.getOperators()) {
+      maxPriority = Math.max(maxPriority, operator.priority);
+
+      for (int i = 0; i < operator.pattern.getPatternLength(); i++) {
+        if (operator.pattern.isOperator(i)) keywords.add(operator.pattern.getOperatorKeyword(i));
+      }
+
+      Map<CtClass, NavigableMap<Integer, List<IROperator>>> map = operator.pattern.isReadas() ? readAs : normal;
+      for (CtClass clazz : getAvailableTypes(operator, errors)) {
+        map.computeIfAbsent(clazz, c -> new TreeMap<>()).computeIfAbsent(operator.priority, p -> new ArrayList<>()).add(operator);
+      }
+    }
+
+    freeze(normal);
+    freeze(readAs);
+
+    this.operators = Collections.unmodifiableMap(normal);
+    this.readAsOperators = Collections.unmodifiableMap(readAs);
+    this.keywords = Collections.unmodifiableSet(keywords);
+    this.errors = Collections.unmodifiableList(errors);
+    this.maxPriority = maxPriority;
+  }
+
+  /* the operators for each type, sorted by their priorities.
+   * an operator appears as many times as its type is reached through the super types. */
+  public Map<CtClass, NavigableMap<Integer, List<IROperator>>> getOperators() {
+    return operators;
+  }
+
+  public Map<CtClass, NavigableMap<Integer, List<IROperator>>> getReadAsOperators() {
+    return readAsOperators;
+  }
+
+  public Set<String> getKeywords() {
+    return keywords;
+  }
+
+  /* the super types not found while the index was made, in the order they were reached */
+  public List<NotFoundException> getErrors() {
+    return errors;
+  }
+
+  public boolean isEmpty() {
+    return maxPriority == Integer.MIN_VALUE;
+  }
+
+  /* the highest priority of the operators. the module must not be empty. */
+  public int getMaxPriority() {
+    assert ! isEmpty();
+    return maxPriority;
+  }
+
+  /* the return type of the operator and its super types up to the bounds, in depth-first order */
+  private static List<CtClass> getAvailableTypes(IROperator operator, List<NotFoundException> errors) {
+    List<CtClass> types = new ArrayList<>();
+    if (operator.returnType.isPrimitive()) types.add(operator.returnType);
+    else addClass(operator.returnType, operator, types, errors);
+    return types;
+  }
+
+  private static void addClass(CtClass clazz, IROperator operator, List<CtClass> types, List<NotFoundException> errors) {
+    types.add(clazz);
+    if (operator.returnTypeBounds.contains(clazz)) return;
+
+    try {
+      CtClass sup = clazz.getSuperclass();
+      if (sup != null) addClass(sup, operator, types, errors);
+    } catch (NotFoundException e) {
+      errors.add(e);
+    }
+
+    addInterfaces(clazz, operator, types, errors);
+  }
+
+  private static void addInterfaces(CtClass clazz, IROperator operator, List<CtClass> types, List<NotFoundException> errors) {
+    if (operator.returnTypeBounds.contains(clazz)) return;
+
+    final CtClass[] interfaces;
+    try { interfaces = clazz.getInterfaces(); } catch (NotFoundException e) {
+      errors.add(e);
+      return;
+    }
+
+    for (CtClass ifc : interfaces) {
+      types.add(ifc);
+      addInterfaces(ifc, operator, types, errors);
+    }
+  }
+
+  /* makes the operators of each type, and the list of each priority, unmodifiable in place */
+  public static void freeze(Map<CtClass, NavigableMap<Integer, List<IROperator>>> map) {
+    for (Map.Entry<CtClass, NavigableMap<Integer, List<IROperator>>> entry : map.entrySet()) {
+      NavigableMap<Integer, List<IROperator>> priorities = entry.getValue();
+      for (Map.Entry<Integer, List<IROperator>> e : priorities.entrySet()) e.setValue(Collections.unmodifiableList(e.getValue()));
+      entry.setValue(Collections.unmodifiableNavigableMap(priorities));
+    }
+  }
+
+  private final Map<CtClass, NavigableMap<Integer, List<IROperator>>> operators;
+  private final Map<CtClass, NavigableMap<Integer, List<IROperator>>> readAsOperators;
+  private final Set<String> keywords;
+  private final List<NotFoundException> errors;
+  private final int maxPriority;
+}
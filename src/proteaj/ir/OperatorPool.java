@@ -1,10 +1,11 @@
 package proteaj.ir;
 
 import proteaj.error.FileIOError;
-import proteaj.io.OperatorsFile;
+import proteaj.io.*;
 import proteaj.ir.primitive.*;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 public class OperatorPool {
   public OperatorPool() {
@@ -16,32 +17,36 @@ public class OperatorPool {
     syntax.put("proteaj.lang.PrimitiveReadasOperators", PrimitiveReadasSyntax.getSyntax());
   }
 
-  public void addSyntax(IRSyntax syn) {
+  public synchronized void addSyntax(IRSyntax syn) {
     syntax.put(syn.name, syn);
   }
 
-  public boolean containsSyntax(String sysName) {
+  public synchronized boolean containsSyntax(String sysName) {
     return syntax.containsKey(sysName);
   }
 
-  public IRSyntax getSyntax(String synName) {
+  public synchronized IRSyntax getSyntax(String synName) {
     return syntax.get(synName);
   }
 
 
 
-  public IRSyntax loadOperatorsFile (String name) throws FileIOError {
+  public synchronized IRSyntax loadOperatorsFile (String name) throws FileIOError {
     if (containsSyntax(name)) return getSyntax(name);
 
-    OperatorsFile file = OperatorsFile.loadOperatorsFile(name);
-    if (file == null) return null;
-
-    IRSyntax syntax = file.read(this);
+    IRSyntax syntax = OperatorsFileLoader.load(name, this);
     if (syntax == null) return null;
 
     addSyntax(syntax);
     return syntax;
   }
 
+  /* the index of the operators module, made once in a compilation when the module is first used by a body.
+   * the operators of the modules compiled now are all added before the bodies are compiled. */
+  public OperatorIndex getIndex (IRSyntax syn) {
+    return indexes.computeIfAbsent(syn, OperatorIndex::new);
+  }
+
   private Map<String, IRSyntax> syntax;
+  private final Map<IRSyntax, OperatorIndex> indexes = new ConcurrentHashMap<>();
 }
@@ -1,6 +1,7 @@
 package proteaj.ir.primitive;
 
 import proteaj.ast.*;
+import proteaj.env.CompilationContext;
 import proteaj.ir.*;
 import proteaj.env.type.*;
 import proteaj.util.*;
@@ -103,32 +104,34 @@ public class BinaryOperator extends PrimitiveOperator {
   public static final BinaryOperator and    = new BinaryOperator(CtClass.booleanType, CtClass.booleanType, "&&", CtClass.booleanType, 200);
   public static final BinaryOperator or     = new BinaryOperator(CtClass.booleanType, CtClass.booleanType, "||", CtClass.booleanType, 100);
 
-  private static BinaryOperator instanceOf = null;
-  private static BinaryOperator objEquals  = null;
-  private static BinaryOperator objNotEqs  = null;
-
-  private static void initialize () {
-    if (instanceOf == null && objEquals == null && objNotEqs == null) {
+  /* the operators on Object depend on the common types, so they are created per compilation */
+  private static final class ObjectOperators {
+    ObjectOperators () {
       CommonTypes cts = CommonTypes.getInstance();
       instanceOf = new BinaryOperator(MOD_NASSOC, CtClass.booleanType, cts.objectType, "instanceof", cts.typeType, 700);
       objEquals  = new BinaryOperator(CtClass.booleanType, cts.objectType, "==", cts.objectType, 600);
       objNotEqs  = new BinaryOperator(CtClass.booleanType, cts.objectType, "!=", cts.objectType, 600);
     }
+
+    final BinaryOperator instanceOf;
+    final BinaryOperator objEquals;
+    final BinaryOperator objNotEqs;
+  }
+
+  private static ObjectOperators objectOperators() {
+    return CompilationContext.current().get(ObjectOperators.class, ObjectOperators::new);
   }
 
   public static BinaryOperator getInstanceOfOperator() {
-    initialize();
-    return instanceOf;
+    return objectOperators().instanceOf;
   }
 
   public static BinaryOperator getObjEqOperator() {
-    initialize();
-    return objEquals;
+    return objectOperators().objEquals;
   }
 
   public static BinaryOperator getObjNeqOperator() {
-    initialize();
-    return objNotEqs;
+    return objectOperators().objNotEqs;
   }
 
   private static IRPattern getBinaryOperatorPattern(int mod, CtClass left, String operator, CtClass right) {
@@ -1,5 +1,6 @@
 package proteaj.ir.primitive;
 
+import proteaj.env.CompilationContext;
 import proteaj.ir.*;
 import proteaj.env.type.CommonTypes;
 
@@ -7,8 +8,7 @@ import javassist.CtClass;
 
 public class PrimitiveReadasSyntax extends IRSyntax {
   public static PrimitiveReadasSyntax getSyntax() {
-    if(syntax == null) syntax = new PrimitiveReadasSyntax();
-    return syntax;
+    return CompilationContext.current().get(PrimitiveReadasSyntax.class, PrimitiveReadasSyntax::new);
   }
 
   private PrimitiveReadasSyntax() {
@@ -24,7 +24,5 @@ public class PrimitiveReadasSyntax extends IRSyntax {
   private void loadOperator (CtClass clazz) {
     if (clazz != null) addOperator(new PrimitiveReadasOperator(clazz));
   }
-
-  private static PrimitiveReadasSyntax syntax = null;
 }
 
@@ -1,5 +1,6 @@
 package proteaj.ir.primitive;
 
+import proteaj.env.CompilationContext;
 import proteaj.ir.*;
 
 import static proteaj.ir.primitive.BinaryOperator.*;
@@ -9,12 +10,9 @@ import static proteaj.ir.primitive.PostfixOperator.*;
 public class PrimitiveSyntax extends IRSyntax {
 
   public static PrimitiveSyntax getSyntax() {
-    if(syntax == null) syntax = new PrimitiveSyntax();
-    return syntax;
+    return CompilationContext.current().get(PrimitiveSyntax.class, PrimitiveSyntax::new);
   }
 
-  private static PrimitiveSyntax syntax = null;
-
   private PrimitiveSyntax() {
     super("proteaj.lang.PrimitiveOperators", "(no source)");
 
@@ -1,18 +1,36 @@
 package proteaj.pparser;
 
+import proteaj.env.CompilationContext;
 import proteaj.error.*;
 
 import java.util.*;
+import java.util.concurrent.*;
 import javassist.*;
-import proteaj.ir.IRHeader;
-import proteaj.ir.IROperator;
-import proteaj.ir.IRSyntax;
-import proteaj.ir.OperatorPool;
+import proteaj.ir.*;
 
 public class AvailableOperators {
+  /* the operators available in the file. they are shared with their expression parsers by all the members
+   * of the files with the same using and unusing lists, since they are determined by those lists.
+   * the operators whose loading reports errors are not shared, so the errors are reported for each member as before.
+   * the members compiled on several threads may load the same operators at once, and one of them is shared. */
+  public static AvailableOperators getInstance (IRHeader header, OperatorPool pool) {
+    Map<List<Object>, AvailableOperators> shared = CompilationContext.current().get(Shared.class, Shared::new).operators;
+    List<Object> key = Arrays.asList(pool, new ArrayList<>(header.usingSyntax), new HashSet<>(header.unusingSyntax));
+
+    AvailableOperators operators = shared.get(key);
+    if (operators != null) return operators;
+
+    DeferredDiagnostics<AvailableOperators> loaded = DeferredDiagnostics.run(() -> new AvailableOperators(header, pool));
+    if (loaded.hasDiagnostics()) return loaded.replay();
+
+    operators = shared.putIfAbsent(key, loaded.getResult());
+    return operators != null ? operators : loaded.getResult();
+  }
+
   public AvailableOperators (IRHeader header, OperatorPool pool) {
     this.normalMap = new HashMap<>();
     this.readAsMap = new HashMap<>();
+    this.keywords = new HashSet<>();
     this.header = header;
     this.pool = pool;
 
@@ -22,22 +40,31 @@ public class AvailableOperators {
       basePriority = loadSyntax(syntax, basePriority) + 1;
     }
 
+    /* the operators are not changed after they are loaded, since they are shared by the members parsed on several threads */
+    OperatorIndex.freeze(normalMap);
+    OperatorIndex.freeze(readAsMap);
+
     //printForDebug();
   }
 
-  public TreeMap<Integer, List<IROperator>> getOperators (CtClass clazz) {
+  public NavigableMap<Integer, List<IROperator>> getOperators (CtClass clazz) {
     if (normalMap.containsKey(clazz)) return normalMap.get(clazz);
     else return emptyMap;
   }
 
-  public TreeMap<Integer, List<IROperator>> getReadAsOperators (CtClass clazz) {
+  public NavigableMap<Integer, List<IROperator>> getReadAsOperators (CtClass clazz) {
     if (readAsMap.containsKey(clazz)) return readAsMap.get(clazz);
     else return emptyMap;
   }
 
+  /* all the keywords appearing in the patterns of the available operators */
+  public Set<String> getKeywords () {
+    return keywords;
+  }
+
   private void printForDebug () {
     System.out.println("===========================================");
-    for (Map.Entry<CtClass, TreeMap<Integer, List<IROperator>>> entry : normalMap.entrySet()) {
+    for (Map.Entry<CtClass, NavigableMap<Integer, List<IROperator>>> entry : normalMap.entrySet()) {
       System.out.println("* " + entry.getKey().getName());
       for (Map.Entry<Integer, List<IROperator>> entry1 : entry.getValue().entrySet()) {
         System.out.println(" # " + entry1.getKey());
@@ -48,6 +75,25 @@ public class AvailableOperators {
     }
   }
 
+  /* a description of the available operators in the order they are loaded.
+   * the bodies parsed with the same description are parsed in the same way : see BodyCache */
+  public String describe () {
+    StringBuilder buf = new StringBuilder();
+    for (IRSyntax syntax : getUsingList()) describe(syntax, buf);
+    return buf.toString();
+  }
+
+  private void describe (IRSyntax syntax, StringBuilder buf) {
+    if (header.unusingSyntax.contains(syntax.name)) return;
+    if (syntax.hasBaseIRSyntax()) describe(syntax.getBaseIRSyntax(), buf);
+
+    buf.append("operators ").append(syntax.name).append('\n');
+    for (IROperator operator : syntax.getOperators()) buf.append(operator.describe()).append('\n');
+  }
+
+  /* the expression parsers for these operators : see ExpressionParsers.getInstance */
+  ExpressionParsers parsers = null;
+
   /* private methods for initializing */
   private int loadSyntax (IRSyntax syntax, int basePriority) {
     if (header.unusingSyntax.contains(syntax.name)) return basePriority;
@@ -57,64 +103,25 @@ public class AvailableOperators {
       maxPriority = loadSyntax(syntax.getBaseIRSyntax(), basePriority);
     }
 
-    for (IROperator operator : syntax.getOperators()) {
-      int priority = operator.priority + basePriority;
-      if (maxPriority < priority) maxPriority = priority;
-
-      if (! operator.pattern.isReadas()) loadOperator(operator, priority, normalMap);
-      else loadOperator(operator, priority, readAsMap);
-    }
-
-    return maxPriority;
-  }
+    OperatorIndex index = pool.getIndex(syntax);
+    for (NotFoundException e : index.getErrors()) ErrorList.addError(new NotFoundError(e, header.filePath, 0));
 
-  private void loadOperator (IROperator operator, int priority, Map<CtClass, TreeMap<Integer, List<IROperator>>> map) {
-    final CtClass clazz = operator.returnType;
+    keywords.addAll(index.getKeywords());
+    loadOperators(index.getOperators(), basePriority, normalMap);
+    loadOperators(index.getReadAsOperators(), basePriority, readAsMap);
 
-    if (clazz.isPrimitive()) loadPrimitive(clazz, priority, operator, map);
-    else loadRef(clazz, priority, operator, map);
+    if (index.isEmpty()) return maxPriority;
+    else return Math.max(maxPriority, index.getMaxPriority() + basePriority);
   }
 
-  private void loadRef (CtClass clazz, int priority, IROperator operator, Map<CtClass, TreeMap<Integer, List<IROperator>>> map) {
-    addOperatorToMap(clazz, priority, operator, map);
-    loadRef_SuperClass(clazz, priority, operator, map);
-    loadRef_Interfaces(clazz, priority, operator, map);
-  }
-
-  private void loadRef_SuperClass (CtClass clazz, int priority, IROperator operator, Map<CtClass, TreeMap<Integer, List<IROperator>>> map) {
-    if (operator.returnTypeBounds.contains(clazz)) return;
-    final CtClass sup;
-    try { sup = clazz.getSuperclass(); } catch (NotFoundException e) {
-      ErrorList.addError(new NotFoundError(e, header.filePath, 0));
-      return;
-    }
-    if (sup != null) loadRef(sup, priority, operator, map);
-  }
-
-  private void loadRef_Interfaces (CtClass clazz, int priority, IROperator operator, Map<CtClass, TreeMap<Integer, List<IROperator>>> map) {
-    if (operator.returnTypeBounds.contains(clazz)) return;
-    final CtClass[] interfaces;
-    try { interfaces = clazz.getInterfaces(); } catch (NotFoundException e) {
-      ErrorList.addError(new NotFoundError(e, header.filePath, 0));
-      return;
+  /* adds the operators of the index to the map, with the priorities raised by the base priority */
+  private static void loadOperators (Map<CtClass, NavigableMap<Integer, List<IROperator>>> index, int basePriority, Map<CtClass, NavigableMap<Integer, List<IROperator>>> map) {
+    for (Map.Entry<CtClass, NavigableMap<Integer, List<IROperator>>> entry : index.entrySet()) {
+      NavigableMap<Integer, List<IROperator>> priorities = map.computeIfAbsent(entry.getKey(), clazz -> new TreeMap<>());
+      for (Map.Entry<Integer, List<IROperator>> e : entry.getValue().entrySet()) {
+        priorities.computeIfAbsent(e.getKey() + basePriority, priority -> new ArrayList<>()).addAll(e.getValue());
+      }
     }
-    for (CtClass ifc : interfaces) loadRef_Interface(ifc, priority, operator, map);
-  }
-
-  private void loadRef_Interface(CtClass clazz, int priority, IROperator operator, Map<CtClass, TreeMap<Integer, List<IROperator>>> map) {
-    addOperatorToMap(clazz, priority, operator, map);
-    loadRef_Interfaces(clazz, priority, operator, map);
-  }
-
-  private void loadPrimitive (CtClass clazz, int priority, IROperator operator, Map<CtClass, TreeMap<Integer, List<IROperator>>> map) {
-    addOperatorToMap(clazz, priority, operator, map);
-/*
-    if (clazz == CtClass.byteType) loadPrimitive(CtClass.shortType, priority, operator, map);
-    else if (clazz == CtClass.charType) loadPrimitive(CtClass.intType, priority, operator, map);
-    else if (clazz == CtClass.shortType) loadPrimitive(CtClass.intType, priority, operator, map);
-    else if (clazz == CtClass.intType) loadPrimitive(CtClass.longType, priority, operator, map);
-    else if (clazz == CtClass.longType) loadPrimitive(CtClass.floatType, priority, operator, map);
-    else if (clazz == CtClass.floatType) loadPrimitive(CtClass.doubleType, priority, operator, map);*/
   }
 
   private List<IRSyntax> getUsingList () {
@@ -149,25 +156,18 @@ public class AvailableOperators {
     throw new NotFoundError("operators module " + name + " is not found", header.filePath, 0);
   }
 
-  /* utility methods for manipulating operators map */
-  private static void addOperatorToMap (CtClass clazz, int priority, IROperator operator, Map<CtClass, TreeMap<Integer, List<IROperator>>> map) {
-    List<IROperator> operators = getEntryFromMap(clazz, priority, map);
-    operators.add(operator);
-  }
-
-  private static List<IROperator> getEntryFromMap (CtClass clazz, int priority, Map<CtClass, TreeMap<Integer, List<IROperator>>> map) {
-    if (! map.containsKey(clazz)) map.put(clazz, new TreeMap<>());
-    TreeMap<Integer, List<IROperator>> treeMap = map.get(clazz);
-    if (! treeMap.containsKey(priority)) treeMap.put(priority, new ArrayList<>());
-    return treeMap.get(priority);
-  }
-
   // expected type, operator priority, operators, reference to super-type operators (type & parsing precedence)
-  private Map<CtClass, TreeMap<Integer, List<IROperator>>> normalMap;
-  private Map<CtClass, TreeMap<Integer, List<IROperator>>> readAsMap;
+  private Map<CtClass, NavigableMap<Integer, List<IROperator>>> normalMap;
+  private Map<CtClass, NavigableMap<Integer, List<IROperator>>> readAsMap;
+  private Set<String> keywords;
 
   private final IRHeader header;
   private final OperatorPool pool;
 
-  private static TreeMap<Integer, List<IROperator>> emptyMap = new TreeMap<>();
+  private static final NavigableMap<Integer, List<IROperator>> emptyMap = Collections.unmodifiableNavigableMap(new TreeMap<>());
+
+  /* the shared operators of a compilation, keyed by the operator pool and the using and unusing lists */
+  private static class Shared {
+    final Map<List<Object>, AvailableOperators> operators = new ConcurrentHashMap<>();
+  }
 }
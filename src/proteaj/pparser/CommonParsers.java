@@ -1,6 +1,7 @@
 package proteaj.pparser;
 
 import java.util.*;
+import java.util.concurrent.*;
 import javassist.*;
 
 import proteaj.error.*;
@@ -10,25 +11,25 @@ import static java.lang.Character.*;
 import static proteaj.pparser.PackratParserCombinators.*;
 
 public class CommonParsers {
-  private static Map<String, PackratParser<String>> elementParsers = new HashMap<>();
-  private static Map<String, PackratParser<String>> keywordParsers = new HashMap<>();
+  private static Map<String, PackratParser<String>> elementParsers = new ConcurrentHashMap<>();
+  private static Map<String, PackratParser<String>> keywordParsers = new ConcurrentHashMap<>();
 
   public static final PackratParser<?> whitespaces =
       new PackratParser<String>() {
         @Override
         protected ParseResult<String> parse(PackratReader reader, Environment env) {
-          while(isWhitespace(reader.lookahead())) reader.next();
+          reader.skipWhitespaces();
           return dummyResult;
         }
       };
 
   public static PackratParser<String> element (final String word) {
-    if (! elementParsers.containsKey(word)) elementParsers.put(word, makeElementParser(word));
+    if (! elementParsers.containsKey(word)) elementParsers.putIfAbsent(word, makeElementParser(word));
     return elementParsers.get(word);
   }
 
   public static PackratParser<String> keyword (final String word) {
-    if (! keywordParsers.containsKey(word)) keywordParsers.put(word, PackratParserCombinators.prefix(whitespaces, element(word)));
+    if (! keywordParsers.containsKey(word)) keywordParsers.putIfAbsent(word, PackratParserCombinators.prefix(whitespaces, element(word)));
     return keywordParsers.get(word);
   }
 
@@ -84,8 +85,9 @@ public class CommonParsers {
       new PackratParser<Character>() {
         @Override
         protected ParseResult<Character> parse(PackratReader reader, Environment env) {
-          if (isLetter(reader.lookahead())) return success(reader.next());
-          else return fail("expected letter, but found " + (char)reader.lookahead(), reader.getPos(), reader);
+          final int c = reader.lookahead();
+          if (isLetter(c)) return success(reader.next());
+          else return fail(() -> "expected letter, but found " + (char)c, reader.getPos(), 0, reader);
         }
       };
 
@@ -95,10 +97,11 @@ public class CommonParsers {
         protected ParseResult<String> parse(PackratReader reader, Environment env) {
           int pos = reader.getPos();
 
-          while(isWhitespace(reader.lookahead())) reader.next();
+          reader.skipWhitespaces();
 
-          if(! isJavaIdentifierStart(reader.lookahead())) {
-            return fail("expected identifier, but found " + (char)reader.lookahead(), pos, reader);
+          final int c = reader.lookahead();
+          if(! isJavaIdentifierStart(c)) {
+            return fail(() -> "expected identifier, but found " + (char)c, pos, 0, reader);
           }
 
           StringBuilder buf = new StringBuilder();
@@ -118,7 +121,7 @@ public class CommonParsers {
         protected ParseResult<Long> parse(PackratReader reader, Environment env) {
           final int pos = reader.getPos();
 
-          while(isWhitespace(reader.lookahead())) reader.next();
+          reader.skipWhitespaces();
 
           if (isDigit(reader.lookahead())) {
             if(reader.lookahead() == 0) {
@@ -347,11 +350,13 @@ public class CommonParsers {
 
         for (int i = 0; i < len; i++) {
           if (reader.lookahead() == word.charAt(i)) reader.next();
-          else return fail("expected token \"" + word + "\" is not found", pos, reader);
+          else return fail(failMsg, pos, reader);
         }
 
         return success(word);
       }
+
+      private final String failMsg = "expected token \"" + word + "\" is not found";
     };
   }
 
@@ -17,7 +17,7 @@ public class Environment {
     IRHeader header = ir.getIRHeader(thisClass);
     this.filePath = header.filePath;
     this.resolver = header.resolver;
-    this.availableOperators = new AvailableOperators(header, ir.getOperatorPool());
+    this.availableOperators = AvailableOperators.getInstance(header, ir.getOperatorPool());
     this.env = new HashMap<>();
     this.exceptions = new HashMap<>();
 
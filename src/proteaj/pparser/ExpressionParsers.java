@@ -7,6 +7,8 @@ import proteaj.env.type.CommonTypes;
 import proteaj.util.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import javassist.*;
 
 import static proteaj.pparser.PackratParserCombinators.*;
@@ -39,25 +41,26 @@ public class ExpressionParsers {
     return getInstance(operators).getArgumentsParserFromCache(behavior);
   }
 
-  /* Multiton pattern */
+  /* Multiton pattern : the instance is kept by the operators it parses */
 
   private static ExpressionParsers getInstance (AvailableOperators operators) {
-    if (! instances.containsKey(operators)) instances.put(operators, new ExpressionParsers(operators));
-    return instances.get(operators);
+    synchronized (operators) {
+      if (operators.parsers == null) operators.parsers = new ExpressionParsers(operators);
+      return operators.parsers;
+    }
   }
 
-  private static Map<AvailableOperators, ExpressionParsers> instances = new WeakHashMap<>();
-
   private ExpressionParsers(AvailableOperators operators) {
     this.operators = operators;
+    this.keywords = new KeywordTrie(operators.getKeywords());
 
-    this.expressionParsers = new HashMap<>();
-    this.operationParsers = new HashMap<>();
-    this.defaultParsers = new HashMap<>();
-    this.argumentsParsers = new HashMap<>();
-    this.readAsExpressionParsers = new HashMap<>();
-    this.literalParsers = new HashMap<>();
-    this.defaultLiteralParsers = new HashMap<>();
+    this.expressionParsers = new ConcurrentHashMap<>();
+    this.operationParsers = new ConcurrentHashMap<>();
+    this.defaultParsers = new ConcurrentHashMap<>();
+    this.argumentsParsers = new ConcurrentHashMap<>();
+    this.readAsExpressionParsers = new ConcurrentHashMap<>();
+    this.literalParsers = new ConcurrentHashMap<>();
+    this.defaultLiteralParsers = new ConcurrentHashMap<>();
   }
 
   /* */
@@ -66,9 +69,9 @@ public class ExpressionParsers {
   }
 
   private PackratParser<Expression> getParser_Ref(final CtClass clazz, final int priority, final boolean inclusive) {
-    return ref(new ParserThunk<Expression>() {
+    return ref(new CachedThunk<Expression>() {
       @Override
-      public PackratParser<Expression> evaluate() {
+      protected PackratParser<Expression> find() {
         TreeMap<Integer, PackratParser<Expression>> tree = getExpressionParsersFromCache(clazz);
         Map.Entry<Integer, PackratParser<Expression>> entry = inclusive ? tree.ceilingEntry(priority) : tree.higherEntry(priority);
         if (entry != null) return entry.getValue();
@@ -82,9 +85,9 @@ public class ExpressionParsers {
   }
 
   private PackratParser<Expression> getLiteralParser_Ref (final CtClass clazz, final int priority, final boolean inclusive) {
-    return ref(new ParserThunk<Expression>() {
+    return ref(new CachedThunk<Expression>() {
       @Override
-      public PackratParser<Expression> evaluate() {
+      protected PackratParser<Expression> find() {
         TreeMap<Integer, PackratParser<Expression>> tree = getReadAsExpressionParsersFromCache(clazz);
         Map.Entry<Integer, PackratParser<Expression>> entry = inclusive ? tree.ceilingEntry(priority) : tree.higherEntry(priority);
         if (entry != null) return entry.getValue();
@@ -103,61 +106,76 @@ public class ExpressionParsers {
 
   /* private methods for caching parsers */
 
+  /* the parsers are made under the lock of this instance and read without it,
+   * since this instance is shared by the members compiled on several threads : see AvailableOperators.getInstance */
+  private <K, V> V getFromCache (Map<K, V> cache, K key, Function<K, V> factory) {
+    V value = cache.get(key);
+    if (value == null) synchronized (this) {
+      value = cache.get(key);
+      if (value == null) {
+        value = factory.apply(key);
+        cache.put(key, value);
+      }
+    }
+    return value;
+  }
+
+  /* a reference to the cached parsers : it is evaluated only once, since the caches always give the same parser */
+  private static abstract class CachedThunk<T> extends ParserThunk<T> {
+    protected abstract PackratParser<T> find();
+
+    @Override
+    public PackratParser<T> evaluate() {
+      PackratParser<T> found = parser;
+      if (found == null) parser = found = find();
+      return found;
+    }
+
+    private volatile PackratParser<T> parser;
+  }
+
   private TreeMap<Integer, PackratParser<Expression>> getExpressionParsersFromCache (CtClass clazz) {
-    if (! expressionParsers.containsKey(clazz)) expressionParsers.put(clazz, makeExpressionParsers(clazz));
-    return expressionParsers.get(clazz);
+    return getFromCache(expressionParsers, clazz, this::makeExpressionParsers);
   }
 
   private List<PackratParser<? extends Expression>> getOperationParsersFromCache (Integer priority, List<IROperator> list) {
     List<PackratParser<? extends Expression>> parsers = new ArrayList<>();
 
-    if (! operationParsers.containsKey(priority)) operationParsers.put(priority, new HashMap<>());
-    Map<IROperator, PackratParser<Operation>> operationParsersCache = operationParsers.get(priority);
+    Map<IROperator, PackratParser<Operation>> operationParsersCache = getFromCache(operationParsers, priority, p -> new ConcurrentHashMap<>());
 
     for (IROperator operator : list) {
-      if (! operationParsersCache.containsKey(operator)) {
-        operationParsersCache.put(operator, makeOperationParser(operator, priority));
-      }
-      parsers.add(operationParsersCache.get(operator));
+      parsers.add(getFromCache(operationParsersCache, operator, op -> makeOperationParser(op, priority)));
     }
 
     return parsers;
   }
 
   private PackratParser<Expression> getDefaultParserFromCache (CtClass clazz) {
-    if (! defaultParsers.containsKey(clazz)) defaultParsers.put(clazz, makeDefaultParser(clazz));
-    return defaultParsers.get(clazz);
+    return getFromCache(defaultParsers, clazz, this::makeDefaultParser);
   }
 
   private PackratParser<List<Expression>> getArgumentsParserFromCache (CtBehavior behavior) {
-    if (! argumentsParsers.containsKey(behavior)) argumentsParsers.put(behavior, makeArgumentsParser(behavior));
-    return argumentsParsers.get(behavior);
+    return getFromCache(argumentsParsers, behavior, this::makeArgumentsParser);
   }
 
   private TreeMap<Integer, PackratParser<Expression>> getReadAsExpressionParsersFromCache (CtClass clazz) {
-    if (! readAsExpressionParsers.containsKey(clazz)) readAsExpressionParsers.put(clazz, makeReadAsExpressionParsers(clazz));
-    return readAsExpressionParsers.get(clazz);
+    return getFromCache(readAsExpressionParsers, clazz, this::makeReadAsExpressionParsers);
   }
 
   private List<PackratParser<? extends Expression>> getReadAsOperationParsersFromCache (Integer priority, List<IROperator> list) {
     List<PackratParser<? extends Expression>> parsers = new ArrayList<>();
 
-    if (! literalParsers.containsKey(priority)) literalParsers.put(priority, new HashMap<>());
-    Map<IROperator, PackratParser<? extends Expression>> literalParsersCache = literalParsers.get(priority);
+    Map<IROperator, PackratParser<? extends Expression>> literalParsersCache = getFromCache(literalParsers, priority, p -> new ConcurrentHashMap<>());
 
     for (IROperator operator : list) {
-      if (! literalParsersCache.containsKey(operator)) {
-        literalParsersCache.put(operator, makeLiteralParser(operator, priority));
-      }
-      parsers.add(literalParsersCache.get(operator));
+      parsers.add(getFromCache(literalParsersCache, operator, op -> makeLiteralParser(op, priority)));
     }
 
     return parsers;
   }
 
   private PackratParser<Expression> getDefaultLiteralParserFromCache (CtClass clazz) {
-    if (! defaultLiteralParsers.containsKey(clazz)) defaultLiteralParsers.put(clazz, makeDefaultLiteralParser(clazz));
-    return defaultLiteralParsers.get(clazz);
+    return getFromCache(defaultLiteralParsers, clazz, this::makeDefaultLiteralParser);
   }
 
   /* private methods for building parsers */
@@ -167,7 +185,7 @@ public class ExpressionParsers {
 
     for (Map.Entry<Integer, List<IROperator>> entry : operators.getOperators(clazz).entrySet()) {
       Integer priority = entry.getKey();
-      map.put(priority, choice(getOperationParsersFromCache(priority, entry.getValue())));
+      map.put(priority, dispatch(getOperationParsersFromCache(priority, entry.getValue()), leadingKeywords(entry.getValue()), true));
     }
 
     TreeMap<Integer, PackratParser<Expression>> parsers = new TreeMap<>();
@@ -183,6 +201,18 @@ public class ExpressionParsers {
     return parsers;
   }
 
+  /* the keyword each operator begins with, or null if it begins with an operand or a predicate */
+  private List<String> leadingKeywords (List<IROperator> list) {
+    List<String> keywords = new ArrayList<>();
+    for (IROperator operator : list) {
+      IRPattern pattern = operator.pattern;
+      if (! pattern.isDummy() && pattern.getPatternLength() > 0 && pattern.isOperator(0) && ! pattern.getOperatorKeyword(0).isEmpty())
+        keywords.add(pattern.getOperatorKeyword(0));
+      else keywords.add(null);
+    }
+    return keywords;
+  }
+
   private PackratParser<Operation> makeOperationParser (final IROperator operator, final int priority) {
     final IRPattern pattern = operator.pattern;
     final int length = pattern.getPatternLength();
@@ -191,7 +221,7 @@ public class ExpressionParsers {
     PackratParser<List<Expression>> parser = unit(newOperandList);
 
     for (int i = 0; i < length; i++) {
-      if (pattern.isOperator(i)) parser = postfix(parser, pattern.getOperatorKeyword(i));
+      if (pattern.isOperator(i)) parser = postfix(parser, keywords.keyword(pattern.getOperatorKeyword(i)));
       else if (pattern.isOperand(i)) parser = map(seq(parser, makeOperandParser(pattern, i, priority)), pair -> {
         List<Expression> list = new ArrayList<>(pair._1);
         list.add(pair._2);
@@ -203,7 +233,7 @@ public class ExpressionParsers {
           notPredicate(getParser_Ref(pattern.getNotPredicateType(i), priority, pattern.getInclusive(i))));
     }
 
-    return effect(map(parser, operands -> new Operation(operator, operands)), throwing(operator));
+    return builtFor(operator, effect(map(parser, operands -> new Operation(operator, operands)), throwing(operator)));
   }
 
   private PackratParser<Expression> makeOperandParser (IRPattern pattern, int index, int priority) {
@@ -252,7 +282,7 @@ public class ExpressionParsers {
     PackratParser <Expression> javaExpr = bind(ref_JavaExpression, expr -> {
       try {
         if (isAssignableTo(expr, clazz)) return unit(expr);
-        else return failure("type mismatch: expected " + clazz.getName() + " but found " + expr.type.getName(), 5);
+        else return failure(() -> "type mismatch: expected " + clazz.getName() + " but found " + expr.type.getName(), 5);
       } catch (NotFoundException e) {
         return error(e);
       }
@@ -290,9 +320,9 @@ public class ExpressionParsers {
     return bind(expression(from), expr -> {
       try {
         if (! to.subtypeOf(clazz))
-          return failure("type mismatch: expected" + clazz.getName() + " but found " + to.getName(), 10);
+          return failure(() -> "type mismatch: expected" + clazz.getName() + " but found " + to.getName(), 10);
         if (! isCastable(from, to))
-          return failure(from + " cannot cast to " + to.getName(), 10);
+          return failure(() -> from + " cannot cast to " + to.getName(), 10);
       } catch (NotFoundException e) { return error(e); }
       return unit(new CastExpression(to, expr));
     });
@@ -349,7 +379,7 @@ public class ExpressionParsers {
 
     for (Map.Entry<Integer, List<IROperator>> entry : operators.getReadAsOperators(clazz).entrySet()) {
       Integer priority = entry.getKey();
-      map.put(priority, choice(getReadAsOperationParsersFromCache(priority, entry.getValue())));
+      map.put(priority, dispatch(getReadAsOperationParsersFromCache(priority, entry.getValue()), leadingKeywords(entry.getValue()), false));
     }
 
     TreeMap<Integer, PackratParser<Expression>> parsers = new TreeMap<>();
@@ -367,7 +397,7 @@ public class ExpressionParsers {
 
   private PackratParser<? extends Expression> makeLiteralParser (final IROperator operator, Integer priority) {
     final IRPattern pattern = operator.pattern;
-    if (pattern.isDummy()) return makePrimitiveLiteralParser(operator.returnType);
+    if (pattern.isDummy()) return builtFor(operator, makePrimitiveLiteralParser(operator.returnType));
 
     final int length = pattern.getPatternLength();
     final List<Expression> newOperandList = Collections.emptyList();
@@ -375,7 +405,7 @@ public class ExpressionParsers {
     PackratParser<List<Expression>> parser = unit(newOperandList);
 
     for (int i = 0; i < length; i++) {
-      if (pattern.isOperator(i)) parser = postfix(parser, element(pattern.getOperatorKeyword(i)));
+      if (pattern.isOperator(i)) parser = postfix(parser, keywords.element(pattern.getOperatorKeyword(i)));
       else if (pattern.isOperand(i)) parser = map(seq(parser, makeReadAsOperandParser(pattern, i, priority)), pair -> {
         List<Expression> list = new ArrayList<>(pair._1);
         list.add(pair._2);
@@ -387,7 +417,13 @@ public class ExpressionParsers {
           notPredicate(getLiteralParser_Ref(pattern.getNotPredicateType(i), priority, pattern.getInclusive(i))));
     }
 
-    return effect(map(parser, operands -> new Operation(operator, operands)), throwing(operator));
+    return builtFor(operator, effect(map(parser, operands -> new Operation(operator, operands)), throwing(operator)));
+  }
+
+  /* marks the parser as the one built for the operator : see ParserCounters */
+  private static <T> PackratParser<T> builtFor (IROperator operator, PackratParser<T> parser) {
+    parser.operator = operator;
+    return parser;
   }
 
   private PackratParser<? extends Expression> makePrimitiveLiteralParser (final CtClass type) {
@@ -454,6 +490,7 @@ public class ExpressionParsers {
   }
 
   private final AvailableOperators operators;
+  private final KeywordTrie keywords;
 
   private Map<CtClass, TreeMap<Integer, PackratParser<Expression>>> expressionParsers;
   private Map<Integer, Map<IROperator, PackratParser<Operation>>> operationParsers;
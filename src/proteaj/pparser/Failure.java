@@ -1,5 +1,8 @@
 package proteaj.pparser;
 
+import java.util.Comparator;
+import java.util.function.Supplier;
+
 public class Failure<T> extends ParseResult<T> {
   public Failure(String msg, int pos, int line) {
     this(msg, pos, line, 0);
@@ -7,11 +10,26 @@ public class Failure<T> extends ParseResult<T> {
 
   public Failure(String msg, int pos, int line, int priority) {
     this.msg = msg;
+    this.message = null;
     this.pos = pos;
     this.line = line;
     this.priority = priority;
   }
 
+  /* most failures are discarded by backtracking : the message is built only when it is reported */
+  public Failure(Supplier<String> message, int pos, int line, int priority) {
+    this.msg = null;
+    this.message = message;
+    this.pos = pos;
+    this.line = line;
+    this.priority = priority;
+  }
+
+  public String getMessage() {
+    if (msg == null) msg = message.get();
+    return msg;
+  }
+
   @Override
   public boolean isFail() {
     return true;
@@ -22,11 +40,20 @@ public class Failure<T> extends ParseResult<T> {
     return t;
   }
 
+  // a failure holds no value of T, so it can be shared as a failure of any type
+  @SuppressWarnings("unchecked")
   public <U> Failure<U> fail() {
-    return new Failure<U>(msg, pos, line, priority);
+    return (Failure<U>)this;
   }
 
-  public final String msg;
+  // the furthest failure is the most informative; priority breaks ties
+  public static final Comparator<Failure<?>> byPositionAndPriority = (f1, f2) -> {
+    if (f1.pos == f2.pos) return f1.priority - f2.priority;
+    else return f1.pos - f2.pos;
+  };
+
+  private String msg;
+  private final Supplier<String> message;
   public final int pos;
   public final int line;
   public final int priority;
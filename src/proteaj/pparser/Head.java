@@ -0,0 +1,40 @@
+package proteaj.pparser;
+
+import java.util.*;
+
+class Head<T> {
+  public Head(PackratParser<T> parser) {
+    this.parser = parser;
+    this.involvedSet = new ArrayList<>();
+    this.evalSet = new ArrayList<>();
+  }
+
+  public void addInvolvedParser(PackratParser parser) {
+    involvedSet.add(parser);
+  }
+
+  public boolean involves(PackratParser parser) {
+    return this.parser == parser || involvedSet.contains(parser);
+  }
+
+  public boolean containsInEvalSet(PackratParser parser) {
+    return evalSet.contains(parser);
+  }
+
+  public void removeFromEvalSet(PackratParser parser) {
+    evalSet.remove(parser);
+  }
+
+  public void copyInvolvedSetToEvalSet() {
+    evalSet = new ArrayList<>(involvedSet);
+  }
+
+  @Override
+  public String toString() {
+    return parser.toString() + "{ " + involvedSet + " }";
+  }
+
+  public final PackratParser<T> parser;
+  private List<PackratParser> involvedSet;
+  private List<PackratParser> evalSet;
+}
@@ -37,7 +37,7 @@ public class JavaExpressionParsers {
 
   private static final PackratParser<MethodCall> methodCall =
       bind(exprDotIdentifier, pair -> depends(env ->
-          foreach(env.getInstanceMethods(pair._1.type, pair._2), method -> methodCallArgs(pair._1, method), "method " + pair._2 + " is not found in " + pair._1.type.getName())));
+          foreach(env.getInstanceMethods(pair._1.type, pair._2), method -> methodCallArgs(pair._1, method), () -> "method " + pair._2 + " is not found in " + pair._1.type.getName())));
 
   private static PackratParser<MethodCall> methodCallArgs (Expression receiver, CtMethod method) {
     return effect(bind(arguments(method), args -> {
@@ -60,7 +60,7 @@ public class JavaExpressionParsers {
       });
 
   private static final PackratParser<StaticMethodCall> abbStaticMethodCall =
-      bind(identifier, s -> depends(env -> foreach(env.getStaticMethods(env.thisClass, s), method -> staticMethodCallArgs(method), "undefined method: " + s)));
+      bind(identifier, s -> depends(env -> foreach(env.getStaticMethods(env.thisClass, s), method -> staticMethodCallArgs(method), () -> "undefined method: " + s)));
 
   private static PackratParser<StaticMethodCall> staticMethodCallArgs (CtMethod method) {
     return effect(bind(arguments(method), args -> {
@@ -70,18 +70,18 @@ public class JavaExpressionParsers {
   }
 
   private static final PackratParser<MethodCall> abbInstanceMethodCall =
-      bind(identifier, s -> depends(env -> env.isStatic() ? failure("cannot abbreviate a receiver of an instance method") : foreach(env.getInstanceMethods(env.thisClass, s), method -> methodCallArgs(env.get("this"), method), "undefined method: " + s)));
+      bind(identifier, s -> depends(env -> env.isStatic() ? failure("cannot abbreviate a receiver of an instance method") : foreach(env.getInstanceMethods(env.thisClass, s), method -> methodCallArgs(env.get("this"), method), () -> "undefined method: " + s)));
 
   private static final PackratParser<Expression> abbMethodCall =
       choice(abbStaticMethodCall, abbInstanceMethodCall);
 
   private static final PackratParser<Expression> variable =
-      bind(identifier, s -> depends(env -> env.contains(s) ? unit(env.get(s)) : failure("unknown variable: " + s, 5)));
+      bind(identifier, s -> depends(env -> env.contains(s) ? unit(env.get(s)) : failure(() -> "unknown variable: " + s, 5)));
 
   private static final PackratParser<Pair<CtClass, String>> classDotIdentifier = infix(className, ".", identifier);
 
   private static final PackratParser<StaticMethodCall> staticMethodCall =
-      bind(classDotIdentifier, pair -> depends(env -> foreach(env.getStaticMethods(pair._1, pair._2), method -> staticMethodCallArgs(method), "suitable static method is not found")));
+      bind(classDotIdentifier, pair -> depends(env -> foreach(env.getStaticMethods(pair._1, pair._2), method -> staticMethodCallArgs(method), () -> "suitable static method is not found")));
 
   private static final PackratParser<StaticFieldAccess> staticFieldAccess =
       bind(classDotIdentifier, pair -> depends(env -> getStaticField(pair._1, pair._2, env)));
@@ -89,10 +89,10 @@ public class JavaExpressionParsers {
   private static PackratParser<FieldAccess> getInstanceField (Expression expr, String name, Environment env) {
     CtField field;
     try { field = expr.type.getField(name); } catch (NotFoundException e) {
-      return failure("field " + name + " is not found in " + expr.type.getName(), 10);
+      return failure(() -> "field " + name + " is not found in " + expr.type.getName(), 10);
     }
-    if (! env.isVisible(field)) return failure("field " + expr.type.getName() + '.' + name + " is not visible from " + env.thisClass.getName(), 10);
-    if (isStatic(field)) return failure("field " + expr.type.getName() + '.' + name + " is a static field", 10);
+    if (! env.isVisible(field)) return failure(() -> "field " + expr.type.getName() + '.' + name + " is not visible from " + env.thisClass.getName(), 10);
+    if (isStatic(field)) return failure(() -> "field " + expr.type.getName() + '.' + name + " is a static field", 10);
 
     try { return unit(new FieldAccess(expr, field)); } catch (NotFoundException e) {
       return error(e);
@@ -102,10 +102,10 @@ public class JavaExpressionParsers {
   private static PackratParser<StaticFieldAccess> getStaticField (CtClass clazz, String name, Environment env) {
     CtField field;
     try { field = clazz.getField(name); } catch (NotFoundException e) {
-      return failure("field " + name + " is not found in " + clazz.getName(), 10);
+      return failure(() -> "field " + name + " is not found in " + clazz.getName(), 10);
     }
-    if (! env.isVisible(field)) return failure("field " + clazz.getName() + '.' + name + " is not visible from " + env.thisClass.getName(), 10);
-    if (! isStatic(field)) return failure("field " + clazz.getName() + '.' + name + " is not a static field", 10);
+    if (! env.isVisible(field)) return failure(() -> "field " + clazz.getName() + '.' + name + " is not visible from " + env.thisClass.getName(), 10);
+    if (! isStatic(field)) return failure(() -> "field " + clazz.getName() + '.' + name + " is not a static field", 10);
 
     try { return unit(new StaticFieldAccess(field)); } catch (NotFoundException e) {
       return error(e);
@@ -113,7 +113,7 @@ public class JavaExpressionParsers {
   }
 
   private static final PackratParser<NewExpression> newObject =
-      bind(prefix("new", className), clazz -> foreach(clazz.getDeclaredConstructors(), c -> effect(map(arguments(c), args -> new NewExpression(c, args)), throwing(c)), "suitable constructor is not found"));
+      bind(prefix("new", className), clazz -> foreach(clazz.getDeclaredConstructors(), c -> effect(map(arguments(c), args -> new NewExpression(c, args)), throwing(c)), () -> "suitable constructor is not found"));
 
   private static final PackratParser<NewArrayExpression> newArray =
       bind(seq(prefix("new", className), rep1(arrayIndex), rep(keywords("[", "]"))), triad -> depends(env -> {
@@ -134,7 +134,7 @@ public class JavaExpressionParsers {
       bind(seq(enclosed("(", typeName, ")"), ref_DotAccess), pair -> {
         try {
           if (isCastable(pair._2.type, pair._1)) return unit(new CastExpression(pair._1, pair._2));
-          else return failure(pair._2.type.getName() + " cannot cast to " + pair._1.getName(), 10);
+          else return failure(() -> pair._2.type.getName() + " cannot cast to " + pair._1.getName(), 10);
         } catch (NotFoundException e) { return error(e); }
       });
 
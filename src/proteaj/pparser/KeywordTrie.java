@@ -0,0 +1,111 @@
+package proteaj.pparser;
+
+import java.util.*;
+
+/* a trie of the operator keywords of an AvailableOperators.
+ * the keywords beginning at an offset are matched in one pass over the source,
+ * and the pass is memoized per offset, so operators sharing a prefix do not rescan it. */
+class KeywordTrie {
+  KeywordTrie (Collection<String> words) {
+    for (String word : words) {
+      Node node = root;
+      for (int i = 0; i < word.length(); i++) node = node.child(word.charAt(i));
+      nodes.put(word, node);
+    }
+  }
+
+  /* same as CommonParsers.keyword : matches the word after whitespaces */
+  public synchronized PackratParser<String> keyword (final String word) {
+    if (! nodes.containsKey(word)) return CommonParsers.keyword(word);
+    if (! keywordParsers.containsKey(word)) keywordParsers.put(word, makeParser(word, true));
+    return keywordParsers.get(word);
+  }
+
+  /* same as CommonParsers.element : matches the word at the current position */
+  public synchronized PackratParser<String> element (final String word) {
+    if (! nodes.containsKey(word)) return CommonParsers.element(word);
+    if (! elementParsers.containsKey(word)) elementParsers.put(word, makeParser(word, false));
+    return elementParsers.get(word);
+  }
+
+  private PackratParser<String> makeParser (final String word, final boolean skipWhitespaces) {
+    final Node node = nodes.get(word);
+    return new PackratParser<String>() {
+      @Override
+      protected ParseResult<String> parse(PackratReader reader, Environment env) {
+        final int pos = reader.getPos();
+
+        if (skipWhitespaces) reader.skipWhitespaces();
+
+        final int start = reader.getPos();
+        final int matched = commonDepth(scan(reader, start), node);
+
+        reader.setPos(start + matched);
+
+        if (matched == node.depth) return success(word);
+        else return fail(failMsg, pos, reader);
+      }
+
+      private final String failMsg = "expected token \"" + word + "\" is not found";
+    };
+  }
+
+  /* the deepest node along the source from pos : every keyword matching at pos is on its path */
+  private Node scan (PackratReader reader, int pos) {
+    MemoTable<Node> memos = reader.memos(scanner);
+    int index = memos.indexOf(pos);
+    if (index >= 0) return memos.resultAt(index).get();
+
+    Node node = root;
+    while (true) {
+      int c = reader.lookahead(node.depth);
+      Node child = c < 0 ? null : node.children.get((char)c);
+      if (child == null) break;
+      node = child;
+    }
+
+    memos.memoize(pos, new Success<>(node), pos + node.depth);
+    return node;
+  }
+
+  /* the length of the common prefix of the two paths */
+  private static int commonDepth (Node n1, Node n2) {
+    while (n1.depth > n2.depth) n1 = n1.parent;
+    while (n2.depth > n1.depth) n2 = n2.parent;
+    while (n1 != n2) {
+      n1 = n1.parent;
+      n2 = n2.parent;
+    }
+    return n1.depth;
+  }
+
+  private static final class Node {
+    Node (Node parent, int depth) {
+      this.parent = parent;
+      this.depth = depth;
+    }
+
+    Node child (char c) {
+      if (! children.containsKey(c)) children.put(c, new Node(this, depth + 1));
+      return children.get(c);
+    }
+
+    final Node parent;
+    final int depth;
+    final Map<Character, Node> children = new HashMap<>();
+  }
+
+  private final Node root = new Node(null, 0);
+  private final Map<String, Node> nodes = new HashMap<>();
+
+  private final Map<String, PackratParser<String>> keywordParsers = new HashMap<>();
+  private final Map<String, PackratParser<String>> elementParsers = new HashMap<>();
+
+  // only its memo table is used : see scan
+  private final PackratParser<Node> scanner = new PackratParser<Node>() {
+    @Override
+    protected ParseResult<Node> parse(PackratReader reader, Environment env) {
+      return success(scan(reader, reader.getPos()));
+    }
+  };
+}
@@ -0,0 +1,46 @@
+package proteaj.pparser;
+
+class LR<T> extends ParseResult<T> {
+  public LR(PackratParser parser) {
+    this.seed = new Failure<>("left recursion seed", 0, 0);
+    this.parser = parser;
+    this.head = null;
+  }
+
+  public boolean isDetected() {
+    return head != null;
+  }
+
+  public ParseResult<T> getSeed() {
+    return seed;
+  }
+
+  public Head getHead() {
+    return head;
+  }
+
+  public void setSeed(ParseResult<T> seed) {
+    this.seed = seed;
+  }
+
+  public void setHead(Head head) {
+    this.head = head;
+  }
+
+  @Override
+  public boolean isFail() { return true; }
+
+  @Override
+  public T getOrElse(T t) {
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return "LR : " + parser + " : seed : " + seed + " : head : " + head;
+  }
+
+  private ParseResult<T> seed;
+  private Head head;
+  public final PackratParser parser;
+}
@@ -0,0 +1,134 @@
+package proteaj.pparser;
+
+class MemoTable<T> {
+  public MemoTable(PackratParser<T> parser) {
+    this.parser = parser;
+    this.parserId = parser.id;
+    keys = new int[INITIAL_CAPACITY];
+    results = new ParseResult<?>[INITIAL_CAPACITY];
+    ends = new int[INITIAL_CAPACITY];
+    size = 0;
+  }
+
+  public ParseResult<T> memoize(int bPos, ParseResult<T> ast, int ePos) {
+    int index = indexOf(bPos);
+
+    if (index >= 0) {
+      ParseResult<T> memo = resultAt(index);
+      if (! (memo instanceof LR) && ! memo.isFail() && ast.isFail()) return memo;
+
+      results[index] = ast;
+      ends[index] = ePos;
+      return ast;
+    }
+
+    if ((size + 1) * 3 > keys.length * 2) rehash(keys.length * 2);
+    insert(bPos, ast, ePos);
+    return ast;
+  }
+
+  public boolean contains(int pos) {
+    return indexOf(pos) >= 0;
+  }
+
+  /* returns the slot of the memo at pos, or -1 if pos is not memoized.
+   * the slot is valid only until the next call of memoize. */
+  public int indexOf(int pos) {
+    final int key = pos + 1;
+    final int mask = keys.length - 1;
+
+    for (int i = hash(key) & mask; keys[i] != 0; i = (i + 1) & mask) {
+      if (keys[i] == key) return i;
+    }
+
+    return -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  public ParseResult<T> resultAt(int index) {
+    return (ParseResult<T>)results[index];
+  }
+
+  public int endAt(int index) {
+    return ends[index];
+  }
+
+  /* removes the memos that begin before pos, except left recursion seeds.
+   * returns the number of remaining memos. */
+  @SuppressWarnings("unchecked")
+  public int evictBefore(int pos) {
+    int[] oldKeys = keys;
+    ParseResult<?>[] oldResults = results;
+    int[] oldEnds = ends;
+
+    int remains = 0;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] == 0) continue;
+      if (oldKeys[i] - 1 >= pos || oldResults[i] instanceof LR) remains++;
+    }
+
+    if (remains == size) return size;
+
+    int capacity = INITIAL_CAPACITY;
+    while (remains * 3 > capacity * 2) capacity *= 2;
+
+    keys = new int[capacity];
+    results = new ParseResult<?>[capacity];
+    ends = new int[capacity];
+    size = 0;
+
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0 && (oldKeys[i] - 1 >= pos || oldResults[i] instanceof LR)) {
+        insert(oldKeys[i] - 1, (ParseResult<T>)oldResults[i], oldEnds[i]);
+      }
+    }
+
+    return size;
+  }
+
+  private void insert(int pos, ParseResult<T> ast, int ePos) {
+    final int key = pos + 1;
+    final int mask = keys.length - 1;
+
+    int i = hash(key) & mask;
+    while (keys[i] != 0) i = (i + 1) & mask;
+
+    keys[i] = key;
+    results[i] = ast;
+    ends[i] = ePos;
+    size++;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void rehash(int capacity) {
+    int[] oldKeys = keys;
+    ParseResult<?>[] oldResults = results;
+    int[] oldEnds = ends;
+
+    keys = new int[capacity];
+    results = new ParseResult<?>[capacity];
+    ends = new int[capacity];
+    size = 0;
+
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) insert(oldKeys[i] - 1, (ParseResult<T>)oldResults[i], oldEnds[i]);
+    }
+  }
+
+  private static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  // the id of the parser is not reused while its memo table is reachable : see ParserIds
+  private final PackratParser<T> parser;
+  final int parserId;
+
+  // keys are stored as (position + 1) so that 0 marks an empty slot
+  private int[] keys;
+  private ParseResult<?>[] results;
+  private int[] ends;
+  private int size;
+
+  private static final int INITIAL_CAPACITY = 8;
+}
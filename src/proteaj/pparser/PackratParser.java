@@ -1,8 +1,8 @@
 package proteaj.pparser;
 
-import proteaj.util.*;
+import proteaj.ir.IROperator;
 
-import java.util.*;
+import java.util.function.Supplier;
 
 public abstract class PackratParser<T> {
   protected abstract ParseResult<T> parse(PackratReader reader, Environment env);
@@ -12,11 +12,21 @@ public abstract class PackratParser<T> {
   }
 
   public ParseResult<T> applyRule(PackratReader reader, Environment env, int pos) {
-    Pair<ParseResult<T>, Integer> m = recall(reader, env, pos);
+    ParserCounters counters = reader.state.counters;
+    if(counters == null || operator == null) return applyRuleAt(reader, env, pos);
+
+    IROperator outer = counters.enter(operator);
+    try { return applyRuleAt(reader, env, pos); }
+    finally { counters.exit(outer); }
+  }
+
+  private ParseResult<T> applyRuleAt(PackratReader reader, Environment env, int pos) {
+    MemoTable<T> memos = mtable(reader);
+    ParseResult<T> m = recall(reader, env, pos, memos);
     if(m == null) {
       reader.state.push(this);
       LR<T> lr = reader.state.head();
-      mtable(reader).memoize(pos, lr, pos);
+      memos.memoize(pos, lr, pos);
 
       reader.setPos(pos);
       ParseResult<T> ans = parse(reader, env);
@@ -24,36 +34,35 @@ public abstract class PackratParser<T> {
       reader.state.pop();
 
       if(lr.isDetected()) {
+        if(reader.state.counters != null) reader.state.counters.lrSeed();
         lr.setSeed(ans);
-        mtable(reader).memoize(pos, lr, reader.getPos());
-        return lrAnswer(reader, env, pos, lr, reader.getPos());
+        memos.memoize(pos, lr, reader.getPos());
+        return lrAnswer(reader, env, pos, lr, reader.getPos(), memos);
       }
       else {
-        return mtable(reader).memoize(pos, ans, reader.getPos());
+        return memos.memoize(pos, ans, reader.getPos());
       }
     }
     else {
-      reader.setPos(m._2);
-
-      if(m._1 instanceof LR) {
-        LR<T> lr = (LR<T>)m._1;
+      if(m instanceof LR) {
+        LR<T> lr = (LR<T>)m;
         setupLR(reader, lr);
         return lr.getSeed();
       }
-      else return m._1;
+      else return m;
     }
   }
 
-  private ParseResult<T> lrAnswer(PackratReader reader, Environment env, int bPos, LR<T> lr, int ePos) {
+  private ParseResult<T> lrAnswer(PackratReader reader, Environment env, int bPos, LR<T> lr, int ePos, MemoTable<T> memos) {
     Head h = lr.getHead();
 
     if(h.parser != this) return lr.getSeed();
-    mtable(reader).memoize(bPos, lr.getSeed(), ePos);
+    memos.memoize(bPos, lr.getSeed(), ePos);
 
-    return growLR(h, reader, env, bPos);
+    return growLR(h, reader, env, bPos, memos);
   }
 
-  private ParseResult<T> growLR(Head h, PackratReader reader, Environment env, int pos) {
+  private ParseResult<T> growLR(Head h, PackratReader reader, Environment env, int pos, MemoTable<T> memos) {
     reader.state.heads.put(pos, h);
     while(true) {
       reader.setPos(pos);
@@ -61,15 +70,17 @@ public abstract class PackratParser<T> {
 
       ParseResult<T> ans = parse(reader, env);
 
-      Pair<ParseResult<T>, Integer> m = mtable(reader).lookup(pos);
+      int m = memos.indexOf(pos);
       int position = reader.getPos();
 
-      if(ans.isFail() || position <= m._2) {
+      if(ans.isFail() || position <= memos.endAt(m)) {
         reader.state.heads.remove(pos);
-        reader.setPos(m._2);
-        return m._1;
+        reader.setPos(memos.endAt(m));
+        return memos.resultAt(m);
       }
-      else mtable(reader).memoize(pos, ans, position);
+      else memos.memoize(pos, ans, position);
+
+      if(reader.state.counters != null) reader.state.counters.lrGrowth();
     }
   }
 
@@ -85,139 +96,101 @@ public abstract class PackratParser<T> {
     assert false;
   }
 
-  private Pair<ParseResult<T>, Integer> recall(PackratReader reader, Environment env, int pos) {
-    if(! reader.state.heads.containsKey(pos)) return mtable(reader).lookup(pos);
+  /* returns the memoized result at pos and moves the reader to its end position,
+   * or returns null if this parser has not been applied at pos yet. */
+  private ParseResult<T> recall(PackratReader reader, Environment env, int pos, MemoTable<T> memos) {
+    if(! reader.state.heads.containsKey(pos)) return lookup(reader, pos, memos);
     Head h = reader.state.heads.get(pos);
 
-    if(! (mtable(reader).contains(pos) || h.involves(this))) return Pair.make(FAIL, pos);
+    if(! (memos.contains(pos) || h.involves(this))) {
+      if(reader.state.counters != null) reader.state.counters.lrExcluded();
+      reader.setPos(pos);
+      return FAIL;
+    }
 
     if(h.containsInEvalSet(this)) {
       h.removeFromEvalSet(this);
+      if(reader.state.counters != null) reader.state.counters.memoMiss();
 
       ParseResult<T> ans = parse(reader, env);
-      mtable(reader).memoize(pos, ans, reader.getPos());
+      memos.memoize(pos, ans, reader.getPos());
 
-      return Pair.make(ans, reader.getPos());
+      return ans;
     }
-    else return mtable(reader).lookup(pos);
+    else return lookup(reader, pos, memos);
   }
 
-  protected PackratParser() {}
+  private ParseResult<T> lookup(PackratReader reader, int pos, MemoTable<T> memos) {
+    int m = memos.indexOf(pos);
 
-  // utilities
-  protected Success<T> success(T t) {
-    return new Success<>(t);
-  }
-
-  protected Failure<T> fail(String msg, int pos, PackratReader reader) {
-    Failure<T> f = new Failure<>(msg, reader.getPos(), reader.getLine());
-    reader.setPos(pos);
-    return f;
-  }
-
-  protected <U> Failure<T> fail(ParseResult<U> result, int pos, PackratReader reader) {
-    assert result.isFail();
-    reader.setPos(pos);
-    return ((Failure<U>)result).fail();
-  }
-
-  protected Failure<T> fail(List<ParseResult<?>> results, int pos, PackratReader reader) {
-    assert ! results.isEmpty();
-
-    Failure<T> best = null;
-    for (ParseResult<?> r : results) {
-      assert r.isFail();
-      Failure<T> f = ((Failure<?>)r).fail();
-      if (best == null || best.pos < f.pos) best = f;
+    if(reader.state.counters != null) {
+      if(m < 0) reader.state.counters.memoMiss();
+      else reader.state.counters.memoHit();
     }
 
-    reader.setPos(pos);
-    return best;
-  }
-
-  private MemoTable<T> mtable(PackratReader reader) { return reader.memos(this); }
-
-  private final ParseResult<T> FAIL = new Failure<>("not involved in this left recursion", 0, 0);
-}
+    if(m < 0) return null;
 
-class LR<T> extends ParseResult<T> {
-  public LR(PackratParser parser) {
-    this.seed = new Failure<>("left recursion seed", 0, 0);
-    this.parser = parser;
-    this.head = null;
+    reader.setPos(memos.endAt(m));
+    return memos.resultAt(m);
   }
 
-  public boolean isDetected() {
-    return head != null;
+  protected PackratParser() {
+    this.id = ids.acquire(this);
   }
 
-  public ParseResult<T> getSeed() {
-    return seed;
+  /* reuses the ids of collected parsers from now on : see ParserIds */
+  public static void recycleIds() {
+    ids.enableRecycling();
   }
 
-  public Head getHead() {
-    return head;
-  }
-
-  public void setSeed(ParseResult<T> seed) {
-    this.seed = seed;
+  // utilities
+  protected Success<T> success(T t) {
+    return new Success<>(t);
   }
 
-  public void setHead(Head head) {
-    this.head = head;
+  protected Failure<T> fail(String msg, int pos, PackratReader reader) {
+    return fail(msg, pos, 0, reader);
   }
 
-  @Override
-  public boolean isFail() { return true; }
-
-  @Override
-  public T getOrElse(T t) {
-    return null;
+  protected Failure<T> fail(String msg, int pos, int priority, PackratReader reader) {
+    return fail(() -> msg, pos, priority, reader);
   }
 
-  @Override
-  public String toString() {
-    return "LR : " + parser + " : seed : " + seed + " : head : " + head;
+  protected Failure<T> fail(Supplier<String> msg, int pos, int priority, PackratReader reader) {
+    Failure<T> f = new Failure<>(msg, reader.getPos(), reader.getLine(), priority);
+    reader.state.updateBestFailure(f);
+    reader.setPos(pos);
+    return f;
   }
 
-  private ParseResult<T> seed;
-  private Head head;
-  public final PackratParser parser;
-}
-
-class Head<T> {
-  public Head(PackratParser<T> parser) {
-    this.parser = parser;
-    this.involvedSet = new ArrayList<>();
-    this.evalSet = new ArrayList<>();
+  protected <U> Failure<T> fail(ParseResult<U> result, int pos, PackratReader reader) {
+    assert result.isFail();
+    reader.setPos(pos);
+    return ((Failure<U>)result).fail();
   }
 
-  public void addInvolvedParser(PackratParser parser) {
-    involvedSet.add(parser);
+  /* counts the failure of the alternative of a choice : see ParserCounters */
+  protected static void failedAlternative(PackratParser<?> alternative, PackratReader reader) {
+    if(reader.state.counters != null) reader.state.counters.failedAlternative(alternative);
   }
 
-  public boolean involves(PackratParser parser) {
-    return this.parser == parser || involvedSet.contains(parser);
+  protected static Failure<?> furtherFailure(Failure<?> best, ParseResult<?> result) {
+    assert result.isFail();
+    Failure<?> f = (Failure<?>)result;
+    if (best == null || best.pos < f.pos) return f;
+    else return best;
   }
 
-  public boolean containsInEvalSet(PackratParser parser) {
-    return evalSet.contains(parser);
-  }
+  private MemoTable<T> mtable(PackratReader reader) { return reader.memos(this); }
 
-  public void removeFromEvalSet(PackratParser parser) {
-    evalSet.remove(parser);
-  }
+  private final ParseResult<T> FAIL = new Failure<>("not involved in this left recursion", 0, 0);
 
-  public void copyInvolvedSetToEvalSet() {
-    evalSet = new ArrayList<>(involvedSet);
-  }
+  // compact id of this parser : index of the memo column in PackratParserState
+  final int id;
 
-  @Override
-  public String toString() {
-    return parser.toString() + "{ " + involvedSet + " }";
-  }
+  // the operator this parser is built for, or null : see ParserCounters
+  IROperator operator;
 
-  public final PackratParser<T> parser;
-  private List<PackratParser> involvedSet;
-  private List<PackratParser> evalSet;
-}
\ No newline at end of file
+  // parsers are also made while parsing, possibly on several threads : see BodyCompiler
+  private static final ParserIds ids = new ParserIds();
+}
@@ -237,14 +237,17 @@ class PackratParserCombinators {
       @Override
       protected ParseResult<T> parse(PackratReader reader, Environment env) {
         final int pos = reader.getPos();
-        List<ParseResult<?>> fails = new ArrayList<>();
+        Failure<?> best = null;
 
         for (PackratParser<? extends T> parser : parsers) {
           ParseResult<? extends  T> result = parser.applyRule(reader, env, pos);
-          if (result.isFail()) fails.add(result);
+          if (result.isFail()) {
+            failedAlternative(parser, reader);
+            best = furtherFailure(best, result);
+          }
           else return success(result.get());
         }
-        return fail(fails, pos, reader);
+        return fail(best, pos, reader);
       }
     };
   }
@@ -254,19 +257,73 @@ class PackratParserCombinators {
       @Override
       protected ParseResult<T> parse(PackratReader reader, Environment env) {
         final int pos = reader.getPos();
-        List<ParseResult<?>> fails = new ArrayList<>();
+        Failure<?> best = null;
 
         for (PackratParser<? extends T> parser : parsers) {
           ParseResult<? extends  T> result = parser.applyRule(reader, env, pos);
-          if (result.isFail()) fails.add(result);
+          if (result.isFail()) {
+            failedAlternative(parser, reader);
+            best = furtherFailure(best, result);
+          }
+          else return success(result.get());
+        }
+        return fail(best, pos, reader);
+      }
+    };
+  }
+
+  /* choice that tries only the alternatives which can begin with the next character.
+   * leadings.get(i) is the keyword that parsers.get(i) begins with, or null if it may begin with anything.
+   * skipWhitespaces : whether the leading keywords are matched after whitespaces (keyword) or not (element). */
+  public static <T> PackratParser<T> dispatch (final List<PackratParser<? extends T>> parsers, final List<String> leadings, final boolean skipWhitespaces) {
+    assert parsers.size() == leadings.size();
+
+    final Map<Character, Route<T>> routes = new HashMap<>();
+    for (String leading : leadings) {
+      if (leading != null && ! routes.containsKey(leading.charAt(0))) routes.put(leading.charAt(0), new Route<>(parsers, leadings, leading.charAt(0)));
+    }
+    final Route<T> others = new Route<>(parsers, leadings, -1);
+
+    return new PackratParser<T>() {
+      @Override
+      protected ParseResult<T> parse(PackratReader reader, Environment env) {
+        final int pos = reader.getPos();
+
+        final int index = skipWhitespaces ? reader.nextNonWhitespace(pos) - pos : 0;
+
+        final int c = reader.lookahead(index);
+        final Route<T> route = c < 0 ? others : routes.getOrDefault((char)c, others);
+        final int size = route.candidates.size();
+
+        Failure<?> best = null;
+
+        for (int i = 0; i < size; i++) {
+          if (i == route.skipAt) best = skipped(best, route.skipped, pos + index, pos, false, reader);
+          PackratParser<? extends T> candidate = route.candidates.get(i);
+          ParseResult<? extends T> result = candidate.applyRule(reader, env, pos);
+          if (result.isFail()) {
+            failedAlternative(candidate, reader);
+            best = furtherFailure(best, result);
+          }
           else return success(result.get());
         }
-        return fail(fails, pos, reader);
+        if (size == route.skipAt) best = skipped(best, route.skipped, pos + index, pos, best == null, reader);
+        return fail(best, pos, reader);
+      }
+
+      /* the failure the first skipped alternative would have made at the leading position.
+       * it is made only if it can be the best failure of the reader, or if nothing else failed. */
+      private Failure<?> skipped (Failure<?> best, String keyword, int leadingPos, int pos, boolean required, PackratReader reader) {
+        Failure<?> furthest = reader.state.bestFailure;
+        if (! required && furthest != null && leadingPos <= furthest.pos) return best;
+
+        reader.setPos(leadingPos);
+        return furtherFailure(best, fail(() -> "expected token \"" + keyword + "\" is not found", pos, 0, reader));
       }
     };
   }
 
-  public static <S, T> PackratParser<T> foreach (final S[] c, final Function<S, PackratParser<T>> function, final String failMsg) {
+  public static <S, T> PackratParser<T> foreach (final S[] c, final Function<S, PackratParser<T>> function, final Supplier<String> failMsg) {
     return new PackratParser<T>() {
       @Override
       protected ParseResult<T> parse(PackratReader reader, Environment env) {
@@ -276,12 +333,12 @@ class PackratParserCombinators {
           ParseResult<T> result = function.apply(s).applyRule(reader, env, pos);
           if (! result.isFail()) return success(result.get());
         }
-        return fail(failMsg, pos, reader);
+        return fail(failMsg, pos, 0, reader);
       }
     };
   }
 
-  public static <S, T, C extends Collection<S>> PackratParser<T> foreach (final C c, final Function<S, PackratParser<T>> function, final String failMsg) {
+  public static <S, T, C extends Collection<S>> PackratParser<T> foreach (final C c, final Function<S, PackratParser<T>> function, final Supplier<String> failMsg) {
     return new PackratParser<T>() {
       @Override
       protected ParseResult<T> parse(PackratReader reader, Environment env) {
@@ -291,7 +348,7 @@ class PackratParserCombinators {
           ParseResult<T> result = function.apply(s).applyRule(reader, env, pos);
           if (! result.isFail()) return success(result.get());
         }
-        return fail(failMsg, pos, reader);
+        return fail(failMsg, pos, 0, reader);
       }
     };
   }
@@ -437,6 +494,19 @@ class PackratParserCombinators {
     };
   }
 
+  /* marks the end of parser as a point that is never backtracked over.
+   * in bounded memo mode, the reader discards the memos behind it. */
+  public static <T> PackratParser<T> commit (final PackratParser<T> parser) {
+    return new PackratParser<T>() {
+      @Override
+      protected ParseResult<T> parse(PackratReader reader, Environment env) {
+        ParseResult<T> result = parser.applyRule(reader, env);
+        if (! result.isFail()) reader.commit();
+        return result;
+      }
+    };
+  }
+
   public static <T> PackratParser<T> andPredicate (final PackratParser<T> predicate) {
     return new PackratParser<T>() {
       @Override
@@ -494,19 +564,22 @@ class PackratParserCombinators {
   }
 
   public static <T> PackratParser<T> failure (final String msg) {
-    return new PackratParser<T>() {
-      @Override
-      protected ParseResult<T> parse(PackratReader reader, Environment env) {
-        return new Failure<>(msg, reader.getPos(), reader.getLine());
-      }
-    };
+    return failure(() -> msg, 0);
+  }
+
+  public static <T> PackratParser<T> failure (final Supplier<String> msg) {
+    return failure(msg, 0);
   }
 
   public static <T> PackratParser<T> failure (final String msg, int priority) {
+    return failure(() -> msg, priority);
+  }
+
+  public static <T> PackratParser<T> failure (final Supplier<String> msg, int priority) {
     return new PackratParser<T>() {
       @Override
       protected ParseResult<T> parse(PackratReader reader, Environment env) {
-        return new Failure<>(msg, reader.getPos(), reader.getLine(), priority);
+        return fail(msg, reader.getPos(), priority, reader);
       }
     };
   }
@@ -516,7 +589,7 @@ class PackratParserCombinators {
       @Override
       protected ParseResult<T> parse(PackratReader reader, Environment env) {
         ErrorList.addError(new NotFoundError(e, reader.filePath, reader.getLine()));
-        return new Failure<>(e.getMessage(), reader.getPos(), reader.getLine());
+        return fail(e.getMessage(), reader.getPos(), reader);
       }
     };
   }
@@ -526,7 +599,7 @@ class PackratParserCombinators {
       @Override
       protected ParseResult<T> parse(PackratReader reader, Environment env) {
         ErrorList.addError(new NotFoundError(e.getMessage(), reader.filePath, reader.getLine()));
-        return new Failure<>(e.getMessage(), reader.getPos(), reader.getLine());
+        return fail(e.getMessage(), reader.getPos(), reader);
       }
     };
   }
@@ -655,6 +728,24 @@ class PackratParserCombinators {
     }
   }
 
+  /* alternatives of dispatch for a leading character c, in their original order */
+  private static final class Route<T> {
+    Route (List<PackratParser<? extends T>> parsers, List<String> leadings, int c) {
+      for (int i = 0; i < parsers.size(); i++) {
+        String leading = leadings.get(i);
+        if (leading == null || leading.charAt(0) == c) candidates.add(parsers.get(i));
+        else if (skipped == null) {
+          skipped = leading;
+          skipAt = candidates.size();
+        }
+      }
+    }
+
+    final List<PackratParser<? extends T>> candidates = new ArrayList<>();
+    String skipped = null;   // keyword of the first skipped alternative
+    int skipAt = -1;         // index of candidates before which the skipped alternative was
+  }
+
   public interface Effect {
     public void perform (PackratReader reader, Environment env);
   }
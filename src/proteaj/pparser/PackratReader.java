@@ -1,18 +1,28 @@
 package proteaj.pparser;
 
-import proteaj.util.Pair;
-
 import java.util.*;
-import java.util.stream.Stream;
 
 public class PackratReader {
   public PackratReader(String source, String filePath, int line) {
+    this(source, filePath, line, false);
+  }
+
+  /* boundedMemo : discard memoized results behind each committed statement.
+   * see PackratParserCombinators.commit */
+  public PackratReader(String source, String filePath, int line, boolean boundedMemo) {
+    this(source, filePath, line, boundedMemo, null);
+  }
+
+  /* counters : the counters of the parsers applied to this reader, or null */
+  public PackratReader(String source, String filePath, int line, boolean boundedMemo, ParserCounters counters) {
     this.source = source;
     this.filePath = filePath;
     this.current = 0;
-    this.state = new PackratParserState();
+    this.state = new PackratParserState(boundedMemo, counters);
 
-    this.lines = createLinesMap(line);
+    this.firstLine = line;
+    this.newlines = createNewlinesIndex();
+    this.nonWhitespaces = createNonWhitespacesIndex();
   }
 
   public int getLine() {
@@ -20,7 +30,8 @@ public class PackratReader {
   }
 
   public int getLine(int pos) {
-    return lines.lowerEntry(pos).getValue();
+    int index = Arrays.binarySearch(newlines, pos);
+    return firstLine + (index >= 0 ? index : -index - 1);
   }
 
   public boolean hasNext() {
@@ -44,9 +55,7 @@ public class PackratReader {
   public String untilNextWhitespace () {
     StringBuilder buf = new StringBuilder();
 
-    int index = 0;
-
-    while (Character.isWhitespace(lookahead(index))) index++;
+    int index = nonWhitespaces[current] - current;
 
     while (hasNext(index) && ! Character.isWhitespace(lookahead(index))) {
       buf.appendCodePoint(lookahead(index++));
@@ -59,6 +68,16 @@ public class PackratReader {
     return source.substring(pos, current);
   }
 
+  /* moves to the next non-whitespace character */
+  public void skipWhitespaces() {
+    current = nonWhitespaces[current];
+  }
+
+  /* the offset of the first non-whitespace character at or after pos */
+  public int nextNonWhitespace(int pos) {
+    return nonWhitespaces[pos];
+  }
+
   public char next() {
     assert hasNext();
     return source.charAt(current++);
@@ -72,30 +91,54 @@ public class PackratReader {
     current = pos;
   }
 
-  public Stream<Failure<?>> getAllFailures() { return state.getAllFailures(); }
+  /* the furthest failure during parsing : the most probable cause of a parse error */
+  public Optional<Failure<?>> getBestFailure() { return Optional.ofNullable(state.bestFailure); }
+
+  public void commit() {
+    state.commit(current);
+  }
 
   public <T> MemoTable<T> memos (PackratParser<T> parser) {
     return state.getMemoTable(parser);
   }
 
-  private TreeMap<Integer, Integer> createLinesMap(int line) {
-    TreeMap<Integer, Integer> map = new TreeMap<Integer, Integer>();
-
-    map.put(-1, line);
+  /* the sorted offsets of the newline characters : the line of pos is firstLine + (the number of newlines before pos) */
+  private int[] createNewlinesIndex() {
     int length = source.length();
+    int count = 0;
 
     for(int i = 0; i < length; i++) {
-      char ch = source.charAt(i);
-      if(ch == '\n') map.put(i, ++line);
+      if(source.charAt(i) == '\n') count++;
+    }
+
+    int[] index = new int[count];
+
+    for(int i = 0, n = 0; i < length; i++) {
+      if(source.charAt(i) == '\n') index[n++] = i;
     }
 
-    return map;
+    return index;
+  }
+
+  /* nonWhitespaces[i] : the offset of the first non-whitespace character at or after i */
+  private int[] createNonWhitespacesIndex() {
+    int length = source.length();
+    int[] index = new int[length + 1];
+
+    index[length] = length;
+    for(int i = length - 1; i >= 0; i--) {
+      index[i] = Character.isWhitespace(source.charAt(i)) ? index[i + 1] : i;
+    }
+
+    return index;
   }
 
   private int current;
 
   private final String source;
-  private final TreeMap<Integer, Integer> lines;
+  private final int firstLine;
+  private final int[] newlines;
+  private final int[] nonWhitespaces;
 
   public final String filePath;
 
@@ -103,53 +146,78 @@ public class PackratReader {
 }
 
 class PackratParserState {
+  public PackratParserState(boolean boundedMemo, ParserCounters counters) {
+    this.liveTables = boundedMemo ? new ArrayList<>() : null;
+    this.counters = counters;
+  }
+
   public <T> void push (PackratParser<T> parser) { lrStack.push(new LR<T>(parser)); }
   public LR head () { return lrStack.peek(); }
   public LR pop () { return lrStack.pop(); }
   public LinkedList<LR> lrList () { return lrStack; }
 
+  /* memo tables are stored in columns indexed by the parser id.
+   * ids are split into block, page and column like a radix tree,
+   * and only the blocks and pages actually used by this reader are allocated. */
+  @SuppressWarnings("unchecked")
   public <T> MemoTable<T> getMemoTable (PackratParser<T> parser) {
-    if (! memoTables.containsKey(parser)) memoTables.put(parser, new MemoTable<>());
-    return (MemoTable<T>) memoTables.get(parser);
-  }
+    final int id = parser.id;
 
-  public Stream<Failure<?>> getAllFailures() {
-    return memoTables.values().stream().flatMap(MemoTable::getAllFailures);
-  }
+    final int block = id >>> BLOCK_SHIFT;
+    if (block >= memoBlocks.length) memoBlocks = Arrays.copyOf(memoBlocks, Math.max(block + 1, memoBlocks.length * 2));
 
-  Map<Integer, Head> heads = new HashMap<>();
+    MemoTable<?>[][] pages = memoBlocks[block];
+    if (pages == null) pages = memoBlocks[block] = new MemoTable<?>[PAGES_PER_BLOCK][];
 
-  private LinkedList<LR> lrStack = new LinkedList<>();
-  private Map<PackratParser<?>, MemoTable<?>> memoTables = new HashMap<>();
-}
+    final int page = (id >>> PAGE_SHIFT) & (PAGES_PER_BLOCK - 1);
+    MemoTable<?>[] columns = pages[page];
+    if (columns == null) columns = pages[page] = new MemoTable<?>[COLUMNS_PER_PAGE];
+
+    final int column = id & (COLUMNS_PER_PAGE - 1);
+    if (columns[column] == null) {
+      columns[column] = new MemoTable<T>(parser);
+      if (liveTables != null) liveTables.add(columns[column]);
+    }
+    return (MemoTable<T>) columns[column];
+  }
 
-class MemoTable<T> {
-  public MemoTable() {
-    memos = new HashMap<>();
+  public void updateBestFailure (Failure<?> failure) {
+    if (bestFailure == null || Failure.byPositionAndPriority.compare(failure, bestFailure) > 0) bestFailure = failure;
   }
 
-  public ParseResult<T> memoize(int bPos, ParseResult<T> ast, Integer ePos) {
-    if (memos.containsKey(bPos)) {
-      ParseResult<T> memo = memos.get(bPos)._1;
+  /* discards the memos that begin before pos, in bounded memo mode.
+   * memos of the parsers still running (left recursion seeds) are never discarded. */
+  public void commit (int pos) {
+    if (liveTables == null || ! heads.isEmpty()) return;
+
+    List<MemoTable<?>> survivors = new ArrayList<>();
 
-      if (! (memo instanceof LR) && ! memo.isFail() && ast.isFail()) return memo;
+    for (MemoTable<?> table : liveTables) {
+      if (table.evictBefore(pos) > 0) survivors.add(table);
+      else removeMemoTable(table.parserId);
     }
 
-    memos.put(bPos, Pair.make(ast, ePos));
-    return ast;
+    liveTables = survivors;
   }
 
-  public Stream<Failure<?>> getAllFailures() {
-    return memos.values().stream().map(pair -> pair._1).filter(result -> result instanceof Failure).map(result -> (Failure<?>)result);
+  private void removeMemoTable (int id) {
+    memoBlocks[id >>> BLOCK_SHIFT][(id >>> PAGE_SHIFT) & (PAGES_PER_BLOCK - 1)][id & (COLUMNS_PER_PAGE - 1)] = null;
   }
 
-  public boolean contains(int pos) {
-    return memos.containsKey(pos);
-  }
+  Map<Integer, Head> heads = new HashMap<>();
 
-  public Pair<ParseResult<T>, Integer> lookup(int pos) {
-    return memos.get(pos);
-  }
+  Failure<?> bestFailure = null;
 
-  private Map<Integer, Pair<ParseResult<T>, Integer>> memos;
-}
\ No newline at end of file
+  final ParserCounters counters;
+
+  private LinkedList<LR> lrStack = new LinkedList<>();
+  private MemoTable<?>[][][] memoBlocks = new MemoTable<?>[1][][];
+
+  // memo tables holding any memo : null unless bounded memo mode
+  private List<MemoTable<?>> liveTables;
+
+  private static final int PAGE_SHIFT = 6;
+  private static final int BLOCK_SHIFT = 12;
+  private static final int COLUMNS_PER_PAGE = 1 << PAGE_SHIFT;
+  private static final int PAGES_PER_BLOCK = 1 << (BLOCK_SHIFT - PAGE_SHIFT);
+}
@@ -0,0 +1,71 @@
+package proteaj.pparser;
+
+import proteaj.ir.IROperator;
+
+import java.util.*;
+
+/* the counters of the packrat parsers applied to a body : see the -Xparserstats option.
+ * each event is counted for the innermost operator being parsed, or for null outside of the operators.
+ * the alternatives of a choice are counted for the operator they are built for, if any.
+ * a reader counts only if it is given counters, and it is used by only one thread. */
+public class ParserCounters {
+  public static class Counts {
+    public long memoHits;
+    public long memoMisses;
+    public long lrSeeds;
+    public long lrGrowths;
+    public long lrExcluded;
+    public long failedAlternatives;
+
+    public void add(Counts counts) {
+      memoHits += counts.memoHits;
+      memoMisses += counts.memoMisses;
+      lrSeeds += counts.lrSeeds;
+      lrGrowths += counts.lrGrowths;
+      lrExcluded += counts.lrExcluded;
+      failedAlternatives += counts.failedAlternatives;
+    }
+  }
+
+  /* the counts of each operator, and of the parsing outside of the operators at the key null */
+  public Map<IROperator, Counts> getCounts() {
+    return Collections.unmodifiableMap(counts);
+  }
+
+  public Counts getTotal() {
+    Counts total = new Counts();
+    for (Counts c : counts.values()) total.add(c);
+    return total;
+  }
+
+  IROperator enter(IROperator operator) {
+    IROperator outer = current;
+    current = operator;
+    return outer;
+  }
+
+  void exit(IROperator outer) {
+    current = outer;
+  }
+
+  void memoHit() { get(current).memoHits++; }
+  void memoMiss() { get(current).memoMisses++; }
+  void lrSeed() { get(current).lrSeeds++; }
+  void lrGrowth() { get(current).lrGrowths++; }
+
+  /* a parser not involved in the left recursion growing at the position fails without looking up its memo */
+  void lrExcluded() { get(current).lrExcluded++; }
+
+  void failedAlternative(PackratParser<?> alternative) {
+    get(alternative.operator != null ? alternative.operator : current).failedAlternatives++;
+  }
+
+  private Counts get(IROperator operator) {
+    Counts c = counts.get(operator);
+    if (c == null) counts.put(operator, c = new Counts());
+    return c;
+  }
+
+  private IROperator current = null;
+  private final Map<IROperator, Counts> counts = new LinkedHashMap<>();
+}
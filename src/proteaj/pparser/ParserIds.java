@@ -0,0 +1,47 @@
+package proteaj.pparser;
+
+import java.lang.ref.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* the ids of the parsers. parsers are made for each body and while parsing, so the ids keep growing.
+ * a long-running process such as the compile server enables recycling :
+ * then the id of a collected parser is given to a new parser, and the ids, and the memo columns of the readers, stay small.
+ * a memo table refers to its parser, so an id is not reused while a reader keeps memos for it.
+ * recycling is disabled by default since tracking every parser costs more than it saves in a single compilation. */
+class ParserIds {
+  int acquire (PackratParser<?> parser) {
+    if (recycling) return acquireRecycled(parser);
+    else return next.getAndIncrement();
+  }
+
+  synchronized void enableRecycling () {
+    recycling = true;
+  }
+
+  private synchronized int acquireRecycled (PackratParser<?> parser) {
+    IdReference released = (IdReference) queue.poll();
+    int id = released != null ? released.id : next.getAndIncrement();
+
+    if (id >= references.length) references = Arrays.copyOf(references, Math.max(id + 1, references.length * 2));
+    references[id] = new IdReference(parser, id, queue);
+    return id;
+  }
+
+  private static final class IdReference extends WeakReference<PackratParser<?>> {
+    IdReference (PackratParser<?> parser, int id, ReferenceQueue<PackratParser<?>> queue) {
+      super(parser, queue);
+      this.id = id;
+    }
+
+    final int id;
+  }
+
+  private volatile boolean recycling = false;
+
+  private final AtomicInteger next = new AtomicInteger();
+  private final ReferenceQueue<PackratParser<?>> queue = new ReferenceQueue<>();
+
+  // keeps the references reachable until they are enqueued : the reference of an id is replaced when it is reused
+  private IdReference[] references = new IdReference[1024];
+}
@@ -216,7 +216,7 @@ public abstract class StatementParsers {
       depends(env -> foreach(env.thisClass.getDeclaredConstructors(), c -> bind(arguments(c), args -> {
         if (c == env.thisMember) return failure("recursive constructor invocation", 10);
         else return unit(new ThisConstructorCall(c, args));
-      }), "suitable constructor is not found"));
+      }), () -> "suitable constructor is not found"));
 
   private final PackratParser<ThisConstructorCall> thisConstructorCall =
       withEffect(enclosed("this", thisConstructorCall_Args, ";"), e -> throwing(e.constructor));
@@ -225,7 +225,7 @@ public abstract class StatementParsers {
       depends(env -> {
         CtClass sup;
         try { sup = env.thisClass.getSuperclass(); } catch (NotFoundException e) { return error(e); }
-        return foreach(sup.getConstructors(), c -> map(arguments(c), args -> new SuperConstructorCall(c, args)), "suitable super constructor is not found");
+        return foreach(sup.getConstructors(), c -> map(arguments(c), args -> new SuperConstructorCall(c, args)), () -> "suitable super constructor is not found");
       });
 
   private final PackratParser<SuperConstructorCall> superConstructorCall =
@@ -247,16 +247,22 @@ public abstract class StatementParsers {
   private final PackratParser<Statement> anotherConstructorCall =
       choice(thisConstructorCall, superConstructorCall, defaultConstructorCall);
 
+  // statements directly under a body : nothing backtracks over them once they are parsed
+  private final PackratParser<Statement> topLevelStatement = commit(ref_BlockStatement);
+
+  private final PackratParser<Block> bodyBlock =
+      map(scope(enclosed("{", rep(topLevelStatement), "}")), Block::new);
+
   private final PackratParser<MethodBody> methodBodyParser =
-      map(block, MethodBody::new);
+      map(bodyBlock, MethodBody::new);
 
   private final PackratParser<ConstructorBody> constructorBodyParser =
-      map(enclosed("{", seq(anotherConstructorCall, rep(blockStatement)), "}"), pair -> {
+      map(enclosed("{", seq(anotherConstructorCall, rep(topLevelStatement)), "}"), pair -> {
         List<Statement> list = pair._2;
         list.add(0, pair._1);
         return new ConstructorBody(new Block(list));
       });
 
   private final PackratParser<ClassInitializer> classInitializerParser =
-      map(block, ClassInitializer::new);
+      map(bodyBlock, ClassInitializer::new);
 }
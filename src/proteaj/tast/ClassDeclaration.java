@@ -13,8 +13,8 @@ public class ClassDeclaration {
     this.clazz = clazz;
     this.filePath = filePath;
 
-    this.methods = new HashMap<>();
-    this.fields = new HashMap<>();
+    this.methods = new LinkedHashMap<>();
+    this.fields = new LinkedHashMap<>();
     this.constructors = new ArrayList<>();
     this.defaultValues = new ArrayList<>();
     this.initializers = new ArrayList<>();
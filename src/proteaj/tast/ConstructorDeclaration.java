@@ -4,10 +4,17 @@ import javassist.CtConstructor;
 
 public class ConstructorDeclaration {
   public ConstructorDeclaration (CtConstructor constructor, ConstructorBody body) {
+    this(constructor, body, null);
+  }
+
+  /* code : the Java code of the body generated in advance, or null. the body is null if it is taken from BodyCache. */
+  public ConstructorDeclaration (CtConstructor constructor, ConstructorBody body, String code) {
     this.constructor = constructor;
     this.body = body;
+    this.code = code;
   }
 
   public final CtConstructor constructor;
   public final ConstructorBody body;
+  public final String code;
 }
@@ -4,10 +4,17 @@ import javassist.CtMethod;
 
 public class MethodDeclaration {
   public MethodDeclaration (CtMethod method, MethodBody body) {
+    this(method, body, null);
+  }
+
+  /* code : the Java code of the body generated in advance, or null. the body is null if it is taken from BodyCache. */
+  public MethodDeclaration (CtMethod method, MethodBody body, String code) {
     this.method = method;
     this.body = body;
+    this.code = code;
   }
 
   public final CtMethod method;
   public final MethodBody body;
+  public final String code;
 }
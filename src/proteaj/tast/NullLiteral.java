@@ -1,12 +1,12 @@
 package proteaj.tast;
 
 import proteaj.tast.util.*;
+import proteaj.env.CompilationContext;
 import proteaj.env.type.CommonTypes;
 
 public class NullLiteral extends Expression {
   public static NullLiteral getInstance() {
-    if (instance == null) instance = new NullLiteral();
-    return instance;
+    return CompilationContext.current().get(NullLiteral.class, NullLiteral::new);
   }
 
   @Override
@@ -17,7 +17,5 @@ public class NullLiteral extends Expression {
   private NullLiteral() {
     super(CommonTypes.getInstance().nullType);
   }
-
-  private static NullLiteral instance = null;
 }
 
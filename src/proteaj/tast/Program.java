@@ -7,7 +7,7 @@ import javassist.*;
 
 public class Program {
   public Program(IR ir) {
-    this.classes = new HashMap<>();
+    this.classes = new LinkedHashMap<>();
     this.operatorModules = new ArrayList<>();
 
     for (IRClass clazz: ir.getClasses()) classes.put(clazz.clazz, new ClassDeclaration(clazz, clazz.header.filePath));
@@ -15,7 +15,7 @@ public class Program {
   }
 
   public Program(List<ClassDeclaration> classes, List<OperatorModuleDeclaration> operatorModules) {
-    this.classes = new HashMap<>();
+    this.classes = new LinkedHashMap<>();
     this.operatorModules = operatorModules;
 
     for(ClassDeclaration c : classes) this.classes.put(c.clazz, c);
@@ -0,0 +1,387 @@
+package proteaj.util;
+
+import proteaj.env.CompilationContext;
+import proteaj.error.FileIOError;
+import proteaj.ir.IROperator;
+import proteaj.pparser.ParserCounters;
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javassist.*;
+
+/* the time and the memory spent by a compilation : see the -Xstats option.
+ * it records the wall time and the bytes allocated in each phase, in each step of each file and in each body.
+ * the bytes are counted per thread, so the bytes allocated on the worker threads while a phase runs are added to the phase.
+ * if it is not enabled, the measures do nothing. */
+public class CompileStats {
+  public static CompileStats getInstance() {
+    return CompilationContext.current().get(CompileStats.class, CompileStats::new);
+  }
+
+  public void enable() {
+    enabled = true;
+    startNanos = System.nanoTime();
+    startGCCount = getGCCount();
+    startGCTime = getGCTime();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) pool.resetPeakUsage();
+  }
+
+  /* counts the packrat parsers applied to each body : see ParserCounters */
+  public void enableParserCounters() {
+    countParsers = true;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /* the counters for the body being compiled on the current thread, or null if the parsers are not counted */
+  public ParserCounters getParserCounters() {
+    return parsing.get();
+  }
+
+  /* runs the task as a phase of the compilation running on the current thread, and measures it */
+  public <T, E extends Exception> T phase(String name, Task<T, E> task) throws E {
+    return measure(phase(name), task);
+  }
+
+  public <E extends Exception> void phase(String name, Action<E> action) throws E {
+    measure(phase(name), action);
+  }
+
+  /* runs the task as a step of the compilation of the file : read, lex, parse, check or codegen */
+  public <T, E extends Exception> T file(String step, String filePath, Task<T, E> task) throws E {
+    return measure(file(step, filePath), task);
+  }
+
+  public <E extends Exception> void file(String step, String filePath, Action<E> action) throws E {
+    measure(file(step, filePath), action);
+  }
+
+  /* runs the task compiling the body of the member.
+   * it is counted as the step bodies of the file, and kept to report the slowest bodies and the parser counters. */
+  public <T, E extends Exception> T body(CtMember member, String filePath, int line, Task<T, E> task) throws E {
+    return measure(body(member, filePath, line), task);
+  }
+
+  public interface Task<T, E extends Exception> {
+    T run() throws E;
+  }
+
+  public interface Action<E extends Exception> {
+    void run() throws E;
+  }
+
+  private static <T, E extends Exception> T measure(Measure measure, Task<T, E> task) throws E {
+    try { return task.run(); }
+    finally { measure.close(); }
+  }
+
+  private static <E extends Exception> void measure(Measure measure, Action<E> action) throws E {
+    try { action.run(); }
+    finally { measure.close(); }
+  }
+
+  private Measure phase(String name) {
+    if (! enabled) return Measure.NONE;
+
+    Counter counter;
+    synchronized (phases) { counter = phases.computeIfAbsent(name, n -> new Counter()); }
+
+    Phase phase = new Phase(Thread.currentThread());
+    Phase outer = current;
+    current = phase;
+
+    return new Measure((thread, nanos, bytes) -> {
+      current = outer;
+      counter.add(nanos, bytes + phase.workerBytes.get());
+    });
+  }
+
+  private Measure file(String step, String filePath) {
+    if (! enabled) return Measure.NONE;
+
+    Counter counter = getFile(filePath).computeIfAbsent(step, s -> new Counter());
+    return work(counter::add);
+  }
+
+  private Measure body(CtMember member, String filePath, int line) {
+    if (! enabled) return Measure.NONE;
+
+    Counter counter = getFile(filePath).computeIfAbsent("bodies", s -> new Counter());
+    ParserCounters counters = countParsers ? new ParserCounters() : null;
+    ParserCounters outer = parsing.get();
+    parsing.set(counters);
+
+    return work((nanos, bytes) -> {
+      parsing.set(outer);
+      counter.add(nanos, bytes);
+      bodies.add(new Body(getName(member), filePath, line, nanos, bytes, counters));
+    });
+  }
+
+  /* writes the statistics as a JSON object */
+  public void write(File file) throws FileIOError {
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+      writer.write(toJSON());
+    } catch (IOException e) {
+      throw new FileIOError("can't write file", file.getPath(), 0);
+    }
+  }
+
+  public String toJSON() {
+    Runtime runtime = Runtime.getRuntime();
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) peak += pool.getPeakUsage().getUsed();
+    }
+
+    StringBuilder buf = new StringBuilder();
+    buf.append("{\n");
+    buf.append("  \"wallNanos\": ").append(System.nanoTime() - startNanos).append(",\n");
+    buf.append("  \"allocatedBytesSupported\": ").append(getThreadMXBean() != null).append(",\n");
+    buf.append("  \"heap\": { \"usedBytes\": ").append(runtime.totalMemory() - runtime.freeMemory());
+    buf.append(", \"peakUsedBytes\": ").append(peak).append(", \"maxBytes\": ").append(runtime.maxMemory()).append(" },\n");
+    buf.append("  \"gc\": { \"count\": ").append(getGCCount() - startGCCount);
+    buf.append(", \"millis\": ").append(getGCTime() - startGCTime).append(" },\n");
+
+    buf.append("  \"phases\": [");
+    synchronized (phases) {
+      String sep = "\n";
+      for (Map.Entry<String, Counter> phase : phases.entrySet()) {
+        buf.append(sep).append("    { \"name\": ").append(quote(phase.getKey())).append(", ");
+        phase.getValue().appendTo(buf);
+        buf.append(" }");
+        sep = ",\n";
+      }
+    }
+    buf.append("\n  ],\n");
+
+    buf.append("  \"files\": [");
+    String sep = "\n";
+    for (Map.Entry<String, Map<String, Counter>> file : new TreeMap<>(files).entrySet()) {
+      Counter total = new Counter();
+      for (Counter step : file.getValue().values()) total.add(step.nanos.get(), step.bytes.get());
+
+      buf.append(sep).append("    { \"path\": ").append(quote(file.getKey())).append(", \"wallNanos\": ").append(total.nanos.get());
+      buf.append(", \"allocatedBytes\": ").append(total.bytes.get()).append(", \"steps\": {");
+      String stepSep = " ";
+      for (String step : STEPS) {
+        Counter counter = file.getValue().get(step);
+        if (counter == null) continue;
+        buf.append(stepSep).append(quote(step)).append(": { ");
+        counter.appendTo(buf);
+        buf.append(" }");
+        stepSep = ", ";
+      }
+      buf.append(" } }");
+      sep = ",\n";
+    }
+    buf.append("\n  ],\n");
+
+    List<Body> slowest = new ArrayList<>(bodies);
+    slowest.sort(Comparator.comparingLong((Body body) -> body.nanos).reversed());
+
+    buf.append("  \"slowestBodies\": [");
+    sep = "\n";
+    for (Body body : slowest.subList(0, Math.min(SLOWEST_BODIES, slowest.size()))) {
+      buf.append(sep).append("    { \"member\": ").append(quote(body.member)).append(", \"path\": ").append(quote(body.filePath));
+      buf.append(", \"line\": ").append(body.line).append(", \"wallNanos\": ").append(body.nanos);
+      buf.append(", \"allocatedBytes\": ").append(body.bytes).append(" }");
+      sep = ",\n";
+    }
+    buf.append("\n  ]");
+
+    if (countParsers) appendParserCounters(buf);
+
+    buf.append("\n}\n");
+    return buf.toString();
+  }
+
+  /* the parser counters of each body in the order of the files and the lines, broken down by the operators */
+  private void appendParserCounters(StringBuilder buf) {
+    List<Body> sorted = new ArrayList<>(bodies);
+    sorted.sort(Comparator.comparing((Body body) -> body.filePath).thenComparingInt(body -> body.line));
+
+    buf.append(",\n  \"parsers\": [");
+    String sep = "\n";
+    for (Body body : sorted) {
+      if (body.counters == null) continue;
+
+      buf.append(sep).append("    { \"member\": ").append(quote(body.member)).append(", \"path\": ").append(quote(body.filePath));
+      buf.append(", \"line\": ").append(body.line).append(", ");
+      appendCounts(body.counters.getTotal(), buf);
+      buf.append(", \"operators\": [");
+
+      String opSep = "\n";
+      for (Map.Entry<IROperator, ParserCounters.Counts> entry : body.counters.getCounts().entrySet()) {
+        String operator = entry.getKey() != null ? entry.getKey().toString() : "";
+        buf.append(opSep).append("      { \"operator\": ").append(quote(operator)).append(", ");
+        appendCounts(entry.getValue(), buf);
+        buf.append(" }");
+        opSep = ",\n";
+      }
+
+      buf.append(" ] }");
+      sep = ",\n";
+    }
+    buf.append("\n  ]");
+  }
+
+  private static void appendCounts(ParserCounters.Counts counts, StringBuilder buf) {
+    buf.append("\"memoHits\": ").append(counts.memoHits).append(", \"memoMisses\": ").append(counts.memoMisses);
+    buf.append(", \"lrSeeds\": ").append(counts.lrSeeds).append(", \"lrGrowths\": ").append(counts.lrGrowths).append(", \"lrExcluded\": ").append(counts.lrExcluded);
+    buf.append(", \"failedAlternatives\": ").append(counts.failedAlternatives);
+  }
+
+  private static class Measure {
+    private Measure(Recorder recorder) {
+      this.recorder = recorder;
+      this.thread = Thread.currentThread();
+      this.startBytes = recorder != null ? getAllocatedBytes() : 0;
+      this.startNanos = recorder != null ? System.nanoTime() : 0;
+    }
+
+    void close() {
+      if (recorder == null) return;
+      long nanos = System.nanoTime() - startNanos;
+      long bytes = getAllocatedBytes() - startBytes;
+      recorder.record(thread, nanos, bytes);
+    }
+
+    private final Recorder recorder;
+    private final Thread thread;
+    private final long startBytes;
+    private final long startNanos;
+
+    private static final Measure NONE = new Measure(null);
+  }
+
+  private interface Recorder {
+    void record(Thread thread, long nanos, long bytes);
+  }
+
+  private interface Adder {
+    void add(long nanos, long bytes);
+  }
+
+  /* a measure of the work done in a phase, possibly on a worker thread */
+  private Measure work(Adder adder) {
+    Phase phase = current;
+    return new Measure((thread, nanos, bytes) -> {
+      adder.add(nanos, bytes);
+      if (phase != null && phase.thread != thread) phase.workerBytes.addAndGet(bytes);
+    });
+  }
+
+  private Map<String, Counter> getFile(String filePath) {
+    return files.computeIfAbsent(filePath, p -> new ConcurrentHashMap<>());
+  }
+
+  private static String getName(CtMember member) {
+    if (member instanceof CtBehavior) return ((CtBehavior)member).getLongName();
+    else return member.getDeclaringClass().getName() + '.' + member.getName();
+  }
+
+  private static String quote(String str) {
+    StringBuilder buf = new StringBuilder("\"");
+    for (char c : str.toCharArray()) {
+      if (c == '"' || c == '\\') buf.append('\\').append(c);
+      else if (c < 0x20) buf.append(String.format("\\u%04x", (int)c));
+      else buf.append(c);
+    }
+    return buf.append('"').toString();
+  }
+
+  /* the bytes allocated by the current thread, or 0 if the JVM does not count them */
+  private static long getAllocatedBytes() {
+    com.sun.management.ThreadMXBean bean = getThreadMXBean();
+    if (bean == null) return 0;
+    return Math.max(bean.getThreadAllocatedBytes(Thread.currentThread().getId()), 0);
+  }
+
+  private static com.sun.management.ThreadMXBean getThreadMXBean() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported()) {
+      return (com.sun.management.ThreadMXBean)bean;
+    }
+    else return null;
+  }
+
+  private static long getGCCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) count += Math.max(gc.getCollectionCount(), 0);
+    return count;
+  }
+
+  private static long getGCTime() {
+    long time = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) time += Math.max(gc.getCollectionTime(), 0);
+    return time;
+  }
+
+  private static class Counter {
+    void add(long nanos, long bytes) {
+      this.count.incrementAndGet();
+      this.nanos.addAndGet(nanos);
+      this.bytes.addAndGet(bytes);
+    }
+
+    void appendTo(StringBuilder buf) {
+      buf.append("\"count\": ").append(count.get()).append(", \"wallNanos\": ").append(nanos.get()).append(", \"allocatedBytes\": ").append(bytes.get());
+    }
+
+    final AtomicLong count = new AtomicLong();
+    final AtomicLong nanos = new AtomicLong();
+    final AtomicLong bytes = new AtomicLong();
+  }
+
+  private static class Phase {
+    Phase(Thread thread) {
+      this.thread = thread;
+    }
+
+    final Thread thread;
+    final AtomicLong workerBytes = new AtomicLong();
+  }
+
+  private static class Body {
+    Body(String member, String filePath, int line, long nanos, long bytes, ParserCounters counters) {
+      this.member = member;
+      this.filePath = filePath;
+      this.line = line;
+      this.nanos = nanos;
+      this.bytes = bytes;
+      this.counters = counters;
+    }
+
+    final String member;
+    final String filePath;
+    final int line;
+    final long nanos;
+    final long bytes;
+    final ParserCounters counters;
+  }
+
+  private CompileStats() {}
+
+  private volatile boolean enabled;
+  private volatile boolean countParsers;
+  private volatile Phase current;
+  private long startNanos;
+  private long startGCCount;
+  private long startGCTime;
+
+  private final Map<String, Counter> phases = new LinkedHashMap<>();
+  private final Map<String, Map<String, Counter>> files = new ConcurrentHashMap<>();
+  private final Queue<Body> bodies = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<ParserCounters> parsing = new ThreadLocal<>();
+
+  private static final String[] STEPS = { "read", "lex", "parse", "check", "bodies", "codegen" };
+  private static final int SLOWEST_BODIES = 20;
+}
@@ -0,0 +1,22 @@
+package proteaj.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+
+public class Digests {
+  /* the SHA-1 hash in hexadecimal */
+  public static String sha1 (byte[] bytes) {
+    try {
+      StringBuilder buf = new StringBuilder();
+      for (byte b : MessageDigest.getInstance("SHA-1").digest(bytes)) buf.append(String.format("%02x", b));
+      return buf.toString();
+    } catch (NoSuchAlgorithmException e) {
+      assert false;
+      throw new RuntimeException(e);
+    }
+  }
+
+  public static String sha1 (String text) {
+    return sha1(text.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,57 @@
+import proteaj.*;
+import proteaj.env.CompilationContext;
+import proteaj.env.type.RootTypeResolver;
+import proteaj.error.*;
+import proteaj.ir.IR;
+
+import java.io.File;
+import java.util.*;
+
+/* measures BodyCompiler.compile, the parse of the method bodies, in this JVM.
+ * usage : BodyBench <class path> <iterations> <source files...>
+ * each iteration compiles the signatures in a new compilation context, and then measures the bodies.
+ * the first half of the iterations warms up the JVM, and the second half is measured. */
+public class BodyBench {
+  public static void main(String[] args) {
+    String classPath = args[0];
+    int iterations = Integer.parseInt(args[1]);
+
+    List<File> files = new ArrayList<>();
+    for (int i = 2; i < args.length; i++) files.add(new File(args[i]));
+
+    long best = Long.MAX_VALUE;
+    long total = 0;
+
+    for (int i = 0; i < iterations; i++) {
+      long time = new CompilationContext().call(() -> measure(classPath, files));
+      if (time < 0) {
+        System.err.println("invalid class path, or the sources have errors");
+        System.exit(1);
+      }
+      if (i >= iterations / 2) {
+        best = Math.min(best, time);
+        total += time;
+      }
+    }
+
+    System.out.printf("best %.1f ms, mean %.1f ms%n", best / 1e6, total / 1e6 / (iterations - iterations / 2));
+  }
+
+  private static long measure (String classPath, List<File> files) {
+    try {
+      RootTypeResolver.getInstance().appendClassPath(classPath);
+    } catch (NotFoundError e) {
+      return -1;
+    }
+    ErrorList.init();
+
+    IR ir = new SigCompiler().compile(files);
+    System.gc();
+
+    long start = System.nanoTime();
+    new BodyCompiler(ir).compile();
+    long time = System.nanoTime() - start;
+
+    return ErrorList.hasError() ? -1 : time;
+  }
+}
@@ -0,0 +1,16 @@
+#!/bin/bash
+
+# measures the parse of the method bodies of the test programs : see BodyBench.java
+# usage : tools/bench/bench.sh [iterations]
+# the compiler is taken from bin or out/production/proteaj, and the library compiled from pjlib from bin.
+
+script_dir=`dirname $0`
+root=${script_dir}/../..
+classpath=${root}/lib/javassist.jar:${root}/lib/args4j-2.0.28.jar:${root}/out/production/proteaj:${root}/bin
+out=${TMPDIR:-/tmp}/proteaj-bench
+
+mkdir -p ${out} && javac -nowarn -classpath ${classpath} -d ${out} ${script_dir}/BodyBench.java || exit 1
+
+cd ${root}
+java -Xms1g -Xmx1g -XX:+UseSerialGC -classpath ${classpath}:${out} BodyBench bin ${1:-40} \
+  test/regex/*.pj test/natural/*.pj test/optimize/*.pj test/print/*.pj test/file/*.pj
@@ -0,0 +1,38 @@
+#!/bin/bash
+
+# compiles a generated method body of many statements under a small heap, with and without -boundedmemo.
+# usage : tools/bench/boundedmemo.sh [statements] [heap]
+# the default mode is expected to run out of memory, and -boundedmemo to compile the body.
+
+script_dir=`dirname $0`
+root=${script_dir}/../..
+classpath=${root}/lib/javassist.jar:${root}/lib/args4j-2.0.28.jar:${root}/out/production/proteaj:${root}/bin
+out=${TMPDIR:-/tmp}/proteaj-boundedmemo
+
+statements=${1:-4000}
+heap=${2:-128m}
+
+rm -rf ${out} && mkdir -p ${out}/big || exit 1
+
+{
+  echo "package big;"
+  echo
+  echo "public class Big {"
+  echo "  public static int run(int a) {"
+  echo "    int x = a;"
+  for ((i = 0; i < statements; i++)); do echo "    x = x + $i * (a - $((i % 7)));"; done
+  echo "    return x;"
+  echo "  }"
+  echo "}"
+} > ${out}/big/Big.pj
+
+compile() {
+  java -Xmx$1 -classpath ${classpath} proteaj.Compiler -d ${out}/$2 ${@:3} ${out}/big/Big.pj > ${out}/$2.log 2>&1
+  if grep -q OutOfMemoryError ${out}/$2.log; then echo "$2 (-Xmx$1) : out of memory"
+  elif [ -f ${out}/$2/big/Big.class ]; then echo "$2 (-Xmx$1) : compiled"
+  else echo "$2 (-Xmx$1) : failed, see ${out}/$2.log"
+  fi
+}
+
+compile ${heap} default
+compile ${heap} boundedmemo -boundedmemo